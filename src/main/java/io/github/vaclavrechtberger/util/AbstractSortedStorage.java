@@ -0,0 +1,140 @@
+package io.github.vaclavrechtberger.util;
+
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Skeletal implementation of {@link io.github.vaclavrechtberger.util.SortedStorage} for storages with cheap positional access.
+ * It provides a list iterator built on top of {@link #get(int)}, {@link #set(int, Object)}, {@link #add(int, Object)} and {@link #remove(int)}.
+ * Subclasses must increment {@link #modCount} on every structural modification.
+ *
+ * @param <E> the type of elements held in this storage
+ */
+abstract class AbstractSortedStorage<E> implements SortedStorage<E> {
+    protected final Comparator<? super E> comparator;
+
+    protected int modCount;
+
+    protected AbstractSortedStorage(Comparator<? super E> comparator) {
+        this.comparator = comparator;
+    }
+
+    @Override
+    public Comparator<? super E> comparator() {
+        return comparator;
+    }
+
+    @Override
+    public ListIterator<E> listIterator(int index) {
+        checkPositionIndex(index);
+        return new IndexCursor(index);
+    }
+
+    protected void checkIndex(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+    }
+
+    protected void checkPositionIndex(int index) {
+        if (index < 0 || index > size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+    }
+
+    protected void checkRange(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > size() || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("fromIndex: " + fromIndex + ", toIndex: " + toIndex + ", Size: " + size());
+        }
+    }
+
+    private class IndexCursor implements ListIterator<E> {
+        private int nextIndex;
+
+        private int lastReturned = -1;
+
+        private int expectedModCount = modCount;
+
+        private IndexCursor(int index) {
+            this.nextIndex = index;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextIndex < size();
+        }
+
+        @Override
+        public E next() {
+            checkForComodification();
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = nextIndex++;
+            return get(lastReturned);
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return nextIndex > 0;
+        }
+
+        @Override
+        public E previous() {
+            checkForComodification();
+            if (!hasPrevious()) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = --nextIndex;
+            return get(lastReturned);
+        }
+
+        @Override
+        public int nextIndex() {
+            return nextIndex;
+        }
+
+        @Override
+        public int previousIndex() {
+            return nextIndex - 1;
+        }
+
+        @Override
+        public void remove() {
+            checkForComodification();
+            if (lastReturned < 0) {
+                throw new IllegalStateException();
+            }
+            AbstractSortedStorage.this.remove(lastReturned);
+            nextIndex = lastReturned;
+            lastReturned = -1;
+            expectedModCount = modCount;
+        }
+
+        @Override
+        public void set(E e) {
+            checkForComodification();
+            if (lastReturned < 0) {
+                throw new IllegalStateException();
+            }
+            AbstractSortedStorage.this.set(lastReturned, e);
+            expectedModCount = modCount;
+        }
+
+        @Override
+        public void add(E e) {
+            checkForComodification();
+            AbstractSortedStorage.this.add(nextIndex++, e);
+            lastReturned = -1;
+            expectedModCount = modCount;
+        }
+
+        private void checkForComodification() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package io.github.vaclavrechtberger.util;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.ListIterator;
+
+/**
+ * Storage which migrates its elements between representations as the size and the workload change.
+ * It starts as a compact {@link io.github.vaclavrechtberger.util.StorageEngine#ARRAY}, grows into a
+ * {@link io.github.vaclavrechtberger.util.StorageEngine#CHUNKED_ARRAY} (or a {@link io.github.vaclavrechtberger.util.StorageEngine#TREE}
+ * for very large write-heavy lists) and returns to the array once it shrinks or the workload becomes read-mostly.
+ * <p>
+ * Reads and writes are counted in a window of at least as many operations as there are elements, and the representation is
+ * reconsidered by the first write after the end of each window, so the O(n) cost of a migration is amortized over the operations of the window.
+ * The only exception is a large array hit by writes, which is left as soon as the writes stop being negligible.
+ * Reads never migrate, so the cursors stay valid while the storage is only read; a cursor created before a migration fails fast.
+ *
+ * @param <E> the type of elements held in this storage
+ */
+final class AdaptiveStorage<E> implements SortedStorage<E> {
+    static final int DEFAULT_SMALL_SIZE = 1024;
+
+    private static final int MINIMAL_WINDOW = 256;
+
+    /**
+     * The workload is considered read-mostly if there are at least this many reads per write.
+     */
+    private static final int READ_MOSTLY_FACTOR = 64;
+
+    /**
+     * Lists larger than this multiple of the small size are considered very large.
+     */
+    private static final int LARGE_FACTOR = 1024;
+
+    private final Comparator<? super E> comparator;
+
+    private final int smallSize;
+
+    private SortedStorage<E> delegate;
+
+    private StorageEngine representation = StorageEngine.ARRAY;
+
+    private long migrationCount;
+
+    private long writeCount;
+
+    private long readCount;
+
+    AdaptiveStorage(Comparator<? super E> comparator) {
+        this(comparator, DEFAULT_SMALL_SIZE);
+    }
+
+    AdaptiveStorage(Comparator<? super E> comparator, int smallSize) {
+        this.comparator = comparator;
+        this.smallSize = smallSize;
+        this.delegate = representation.create(comparator);
+    }
+
+    @Override
+    public Comparator<? super E> comparator() {
+        return comparator;
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    @Override
+    public E get(int index) {
+        E element = delegate.get(index);
+        afterRead();
+        return element;
+    }
+
+    @Override
+    public E first() {
+        return delegate.first();
+    }
+
+    @Override
+    public E last() {
+        return delegate.last();
+    }
+
+    @Override
+    public E set(int index, E element) {
+        return delegate.set(index, element);
+    }
+
+    @Override
+    public void add(int index, E element) {
+        delegate.add(index, element);
+        afterWrite();
+    }
+
+    @Override
+    public void addAll(int index, Collection<? extends E> elements) {
+        delegate.addAll(index, elements);
+        writeCount += elements.size() - 1;
+        afterWrite();
+    }
+
+    @Override
+    public int insert(E element) {
+        int index = delegate.insert(element);
+        afterWrite();
+        return index;
+    }
+
+    @Override
+    public E remove(int index) {
+        E removed = delegate.remove(index);
+        afterWrite();
+        return removed;
+    }
+
+    @Override
+    public void removeRange(int fromIndex, int toIndex) {
+        delegate.removeRange(fromIndex, toIndex);
+        afterWrite();
+    }
+
+    @Override
+    public int lowerBound(E key) {
+        int index = delegate.lowerBound(key);
+        afterRead();
+        return index;
+    }
+
+    @Override
+    public int upperBound(E key) {
+        int index = delegate.upperBound(key);
+        afterRead();
+        return index;
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+        if (representation != StorageEngine.ARRAY) {
+            representation = StorageEngine.ARRAY;
+            delegate = representation.create(comparator);
+            migrationCount++;
+        }
+        writeCount = 0;
+        readCount = 0;
+    }
+
+    @Override
+    public ListIterator<E> listIterator(int index) {
+        afterRead();
+        ListIterator<E> cursor = delegate.listIterator(index);
+        long expectedMigrationCount = migrationCount;
+        return new ListIterator<>() {
+            @Override
+            public boolean hasNext() {
+                return cursor.hasNext();
+            }
+
+            @Override
+            public E next() {
+                checkForMigration();
+                return cursor.next();
+            }
+
+            @Override
+            public boolean hasPrevious() {
+                return cursor.hasPrevious();
+            }
+
+            @Override
+            public E previous() {
+                checkForMigration();
+                return cursor.previous();
+            }
+
+            @Override
+            public int nextIndex() {
+                return cursor.nextIndex();
+            }
+
+            @Override
+            public int previousIndex() {
+                return cursor.previousIndex();
+            }
+
+            @Override
+            public void remove() {
+                checkForMigration();
+                cursor.remove();
+            }
+
+            @Override
+            public void set(E e) {
+                checkForMigration();
+                cursor.set(e);
+            }
+
+            @Override
+            public void add(E e) {
+                checkForMigration();
+                cursor.add(e);
+            }
+
+            private void checkForMigration() {
+                if (migrationCount != expectedMigrationCount) {
+                    throw new ConcurrentModificationException();
+                }
+            }
+        };
+    }
+
+    @Override
+    public Object[] toArray() {
+        return delegate.toArray();
+    }
+
+    @Override
+    public StorageStatistics statistics() {
+        return new StorageStatistics(representation, migrationCount, writeCount, readCount);
+    }
+
+    private void afterRead() {
+        readCount++;
+    }
+
+    private void afterWrite() {
+        writeCount++;
+        adapt();
+    }
+
+    private void adapt() {
+        boolean leaveArray = representation == StorageEngine.ARRAY && size() > smallSize
+                && writeCount >= MINIMAL_WINDOW && writeCount * READ_MOSTLY_FACTOR > readCount;
+        if (!leaveArray && writeCount + readCount < Math.max(MINIMAL_WINDOW, size())) {
+            return;
+        }
+        StorageEngine target = target();
+        if (target != representation) {
+            migrate(target);
+        }
+        writeCount = 0;
+        readCount = 0;
+    }
+
+    private StorageEngine target() {
+        int size = size();
+        if (representation == StorageEngine.ARRAY ? size <= smallSize : size <= smallSize / 4) {
+            return StorageEngine.ARRAY;
+        }
+        if (writeCount * READ_MOSTLY_FACTOR <= readCount) {
+            return StorageEngine.ARRAY;
+        }
+        long largeSize = (long) smallSize * LARGE_FACTOR;
+        if (size > largeSize && writeCount >= readCount || representation == StorageEngine.TREE && size > largeSize / 4) {
+            return StorageEngine.TREE;
+        }
+        return StorageEngine.CHUNKED_ARRAY;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void migrate(StorageEngine target) {
+        SortedStorage<E> migrated = target.create(comparator);
+        migrated.addAll(0, (List<E>) Arrays.asList(delegate.toArray()));
+        // the previous storage is left intact for the cursors still walking it, which fail fast on their next move
+        delegate = migrated;
+        representation = target;
+        migrationCount++;
+    }
+}
@@ -0,0 +1,140 @@
+package io.github.vaclavrechtberger.util;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+
+/**
+ * Single sorted array.
+ * Lookups by value use a binary search and lookups by position are O(1), while insertions and removals shift the tail of the array.
+ * The array grows by half of its length and shrinks once it is filled less than a quarter, so it stays compact for small lists.
+ * Searches by value gallop from the position of the last search or insertion (finger), so clustered operations take O(log d) comparisons,
+ * where d is the distance from the previous operation.
+ *
+ * @param <E> the type of elements held in this storage
+ */
+final class ArrayStorage<E> extends AbstractSortedStorage<E> {
+    private static final Object[] EMPTY = {};
+
+    private static final int MINIMAL_LENGTH = 8;
+
+    private Object[] elements = EMPTY;
+
+    private int size;
+
+    /**
+     * Position of the last search or insertion.
+     */
+    private int finger;
+
+    ArrayStorage(Comparator<? super E> comparator) {
+        super(comparator);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        checkIndex(index);
+        return (E) elements[index];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E set(int index, E element) {
+        checkIndex(index);
+        E previous = (E) elements[index];
+        elements[index] = element;
+        return previous;
+    }
+
+    @Override
+    public void add(int index, E element) {
+        checkPositionIndex(index);
+        ensureCapacity(size + 1);
+        System.arraycopy(elements, index, elements, index + 1, size - index);
+        elements[index] = element;
+        size++;
+        finger = index;
+        modCount++;
+    }
+
+    @Override
+    public void addAll(int index, Collection<? extends E> elements) {
+        checkPositionIndex(index);
+        Object[] added = elements.toArray();
+        ensureCapacity(size + added.length);
+        System.arraycopy(this.elements, index, this.elements, index + added.length, size - index);
+        System.arraycopy(added, 0, this.elements, index, added.length);
+        size += added.length;
+        modCount++;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E remove(int index) {
+        checkIndex(index);
+        E removed = (E) elements[index];
+        System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+        elements[--size] = null;
+        if (size < elements.length / 4 && elements.length > MINIMAL_LENGTH) {
+            elements = Arrays.copyOf(elements, Math.max(MINIMAL_LENGTH, elements.length / 2));
+        }
+        modCount++;
+        return removed;
+    }
+
+    @Override
+    public void removeRange(int fromIndex, int toIndex) {
+        checkRange(fromIndex, toIndex);
+        System.arraycopy(elements, toIndex, elements, fromIndex, size - toIndex);
+        Arrays.fill(elements, size - (toIndex - fromIndex), size, null);
+        size -= toIndex - fromIndex;
+        if (size < elements.length / 4 && elements.length > MINIMAL_LENGTH) {
+            elements = Arrays.copyOf(elements, Math.max(MINIMAL_LENGTH, size * 2));
+        }
+        modCount++;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public int lowerBound(E key) {
+        finger = FingerSearch.firstMatch(i -> comparator.compare((E) elements[i], key) >= 0, size, finger);
+        return finger;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public int upperBound(E key) {
+        finger = FingerSearch.firstMatch(i -> comparator.compare((E) elements[i], key) > 0, size, finger);
+        return finger;
+    }
+
+    @Override
+    public void clear() {
+        elements = EMPTY;
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public StorageStatistics statistics() {
+        return new StorageStatistics(StorageEngine.ARRAY);
+    }
+
+    @Override
+    public Object[] toArray() {
+        return Arrays.copyOf(elements, size);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > elements.length) {
+            int newLength = Math.max(Math.max(MINIMAL_LENGTH, capacity), elements.length + (elements.length >> 1));
+            elements = Arrays.copyOf(elements, newLength);
+        }
+    }
+}
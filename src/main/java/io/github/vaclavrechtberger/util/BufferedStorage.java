@@ -0,0 +1,211 @@
+package io.github.vaclavrechtberger.util;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.ListIterator;
+
+/**
+ * Storage which defers insertions into an unsorted append buffer in front of another storage.
+ * The buffer is sorted and merged into the underlying storage in one O(n + k log k) pass once it reaches its capacity
+ * or once the elements are observed (any lookup or iteration), so the sorted view is exact whenever it is read.
+ * A large merge reloads the underlying storage by a bulk {@link SortedStorage#addAll(int, Collection)} of an empty storage,
+ * which is linear for all the built-in engines; a custom storage without such a bulk load pays its own cost per element.
+ * The size and the first and last elements are answered without merging, so they do not interrupt the ingestion.
+ * <p>
+ * Buffered elements are merged after the equal elements of the underlying storage and in the order in which they were added,
+ * which is the same order as if they had been inserted one by one.
+ *
+ * @param <E> the type of elements held in this storage
+ */
+final class BufferedStorage<E> implements SortedStorage<E> {
+    private final SortedStorage<E> delegate;
+
+    private final Comparator<? super E> comparator;
+
+    private final Object[] buffer;
+
+    private int buffered;
+
+    /**
+     * The first of the smallest and the last of the largest buffered elements.
+     */
+    private E bufferFirst;
+
+    private E bufferLast;
+
+    BufferedStorage(SortedStorage<E> delegate, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Buffer capacity must be positive: " + capacity);
+        }
+        this.delegate = delegate;
+        this.comparator = delegate.comparator();
+        this.buffer = new Object[capacity];
+    }
+
+    @Override
+    public Comparator<? super E> comparator() {
+        return comparator;
+    }
+
+    @Override
+    public int size() {
+        return delegate.size() + buffered;
+    }
+
+    @Override
+    public E get(int index) {
+        return merged().get(index);
+    }
+
+    @Override
+    public E first() {
+        if (buffered == 0) {
+            return delegate.first();
+        }
+        return delegate.isEmpty() || comparator.compare(bufferFirst, delegate.first()) < 0 ? bufferFirst : delegate.first();
+    }
+
+    @Override
+    public E last() {
+        if (buffered == 0) {
+            return delegate.last();
+        }
+        return delegate.isEmpty() || comparator.compare(bufferLast, delegate.last()) >= 0 ? bufferLast : delegate.last();
+    }
+
+    @Override
+    public E set(int index, E element) {
+        return merged().set(index, element);
+    }
+
+    /**
+     * Buffers the element if it goes to the end, or to the beginning before all the elements; otherwise merges the buffer first.
+     */
+    @Override
+    public void add(int index, E element) {
+        if (index == size() || index == 0 && !isEmpty() && comparator.compare(element, first()) < 0) {
+            append(element);
+        } else {
+            merged().add(index, element);
+        }
+    }
+
+    @Override
+    public void addAll(int index, Collection<? extends E> elements) {
+        merged().addAll(index, elements);
+    }
+
+    /**
+     * Buffers the element; its index is not known until the buffer is merged.
+     *
+     * @param element the element to be inserted
+     * @return -1
+     */
+    @Override
+    public int insert(E element) {
+        append(element);
+        return -1;
+    }
+
+    @Override
+    public E remove(int index) {
+        return merged().remove(index);
+    }
+
+    @Override
+    public void removeRange(int fromIndex, int toIndex) {
+        merged().removeRange(fromIndex, toIndex);
+    }
+
+    @Override
+    public int lowerBound(E key) {
+        return merged().lowerBound(key);
+    }
+
+    @Override
+    public int upperBound(E key) {
+        return merged().upperBound(key);
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+        Arrays.fill(buffer, 0, buffered, null);
+        buffered = 0;
+        bufferFirst = null;
+        bufferLast = null;
+    }
+
+    @Override
+    public ListIterator<E> listIterator(int index) {
+        return merged().listIterator(index);
+    }
+
+    @Override
+    public Object[] toArray() {
+        return merged().toArray();
+    }
+
+    @Override
+    public StorageStatistics statistics() {
+        return delegate.statistics();
+    }
+
+    private void append(E element) {
+        if (buffered == 0 || comparator.compare(element, bufferFirst) < 0) {
+            bufferFirst = element;
+        }
+        if (buffered == 0 || comparator.compare(element, bufferLast) >= 0) {
+            bufferLast = element;
+        }
+        buffer[buffered++] = element;
+        if (buffered == buffer.length) {
+            merge();
+        }
+    }
+
+    /**
+     * Merges the buffer and returns the underlying storage.
+     */
+    private SortedStorage<E> merged() {
+        if (buffered > 0) {
+            merge();
+        }
+        return delegate;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void merge() {
+        E[] sorted = (E[]) Arrays.copyOf(buffer, buffered);
+        // stable, so equal elements keep the order in which they were added
+        Arrays.sort(sorted, comparator);
+        Arrays.fill(buffer, 0, buffered, null);
+        buffered = 0;
+        bufferFirst = null;
+        bufferLast = null;
+        int size = delegate.size();
+        if (size == 0) {
+            delegate.addAll(0, Arrays.asList(sorted));
+        } else if ((long) sorted.length * (32 - Integer.numberOfLeadingZeros(size)) < size) {
+            // a few elements are cheaper to insert one by one than to rebuild the whole storage
+            for (E element : sorted) {
+                delegate.insert(element);
+            }
+        } else {
+            E[] existing = (E[]) delegate.toArray();
+            Object[] result = new Object[existing.length + sorted.length];
+            int i = 0;
+            int j = 0;
+            int k = 0;
+            while (i < existing.length && j < sorted.length) {
+                result[k++] = comparator.compare(sorted[j], existing[i]) < 0 ? sorted[j++] : existing[i++];
+            }
+            System.arraycopy(existing, i, result, k, existing.length - i);
+            System.arraycopy(sorted, j, result, k, sorted.length - j);
+            delegate.clear();
+            delegate.addAll(0, (List<E>) Arrays.asList(result));
+        }
+    }
+}
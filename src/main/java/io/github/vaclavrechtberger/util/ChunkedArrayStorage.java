@@ -0,0 +1,785 @@
+package io.github.vaclavrechtberger.util;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.function.ToLongFunction;
+
+/**
+ * Unrolled (chunked) array.
+ * The elements are kept in bounded-size sorted arrays (chunks). A small top-level index keeps the minimum of every chunk
+ * and a Fenwick tree over the chunk sizes, so both key-based and positional lookups find the right chunk in O(log c)
+ * and then use a binary search or a direct access inside the chunk.
+ * An insertion shifts at most one chunk; a full chunk is split into halves and a chunk filled less than a quarter is merged with
+ * (or refilled from) its neighbour.
+ * Both kinds of lookups start at a finger: searches by value gallop over the chunk minimums from the chunk of the previous search,
+ * and positional lookups check the chunk of the previous lookup and its neighbours before falling back to the Fenwick tree,
+ * so clustered searches and sequential positional reads do not pay the full search.
+ * <p>
+ * Optionally, every element is kept with its abbreviated key: an order-preserving {@code long} prefix of the element
+ * (i.e., {@code compare(a, b) <= 0} implies {@code abbreviation(a) <= abbreviation(b)}, so elements equal according to the comparator
+ * have equal keys) in a primitive array beside the chunk.
+ * Searches compare the abbreviated keys first and call the comparator only when they are equal; only these searches are counted by the statistics.
+ *
+ * @param <E> the type of elements held in this storage
+ */
+final class ChunkedArrayStorage<E> implements SortedStorage<E> {
+    static final int DEFAULT_CHUNK_CAPACITY = 128;
+
+    private static final int INITIAL_CHUNK_LENGTH = 8;
+
+    private final Comparator<? super E> comparator;
+
+    private final int chunkCapacity;
+
+    private Object[][] chunks = new Object[4][];
+
+    private int[] sizes = new int[4];
+
+    private Object[] minimums = new Object[4];
+
+    /**
+     * Function computing the abbreviated key of an element, or {@code null} if the keys are not kept.
+     */
+    private final ToLongFunction<? super E> abbreviation;
+
+    /**
+     * Abbreviated keys of the elements of {@link #chunks} and of {@link #minimums}, or {@code null} if the keys are not kept.
+     */
+    private long[][] keys;
+
+    private long[] minimumKeys;
+
+    private long comparisonCount;
+
+    private long fullComparisonCount;
+
+    /**
+     * Fenwick tree over {@link #sizes} (1-based).
+     */
+    private int[] tree = new int[5];
+
+    private int chunkCount;
+
+    private int size;
+
+    private int modCount;
+
+    /**
+     * Offset within the chunk found by the last call of {@link #locate(int)}.
+     */
+    private int locatedOffset;
+
+    /**
+     * Chunk found by the last search by value.
+     */
+    private int searchFinger;
+
+    /**
+     * Chunk found by the last positional lookup and the index of its first element, valid while {@link #modCount} equals {@link #fingerModCount}.
+     */
+    private int fingerChunk;
+
+    private int fingerStart;
+
+    private int fingerModCount = -1;
+
+    ChunkedArrayStorage(Comparator<? super E> comparator) {
+        this(comparator, DEFAULT_CHUNK_CAPACITY);
+    }
+
+    ChunkedArrayStorage(Comparator<? super E> comparator, int chunkCapacity) {
+        this(comparator, chunkCapacity, null);
+    }
+
+    /**
+     * Creates an empty storage.
+     *
+     * @param comparator the comparator to determine the ordering of elements
+     * @param chunkCapacity the maximal number of elements of a chunk
+     * @param abbreviation the function computing the abbreviated key of an element (including null if null elements are added), or {@code null}
+     */
+    ChunkedArrayStorage(Comparator<? super E> comparator, int chunkCapacity, ToLongFunction<? super E> abbreviation) {
+        if (chunkCapacity < 4) {
+            throw new IllegalArgumentException("Chunk capacity must be at least 4: " + chunkCapacity);
+        }
+        this.comparator = comparator;
+        this.chunkCapacity = chunkCapacity;
+        this.abbreviation = abbreviation;
+        if (abbreviation != null) {
+            keys = new long[4][];
+            minimumKeys = new long[4];
+        }
+    }
+
+    @Override
+    public Comparator<? super E> comparator() {
+        return comparator;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        checkIndex(index);
+        int chunk = locate(index);
+        return (E) chunks[chunk][locatedOffset];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E first() {
+        checkIndex(0);
+        return (E) minimums[0];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E last() {
+        checkIndex(0);
+        return (E) chunks[chunkCount - 1][sizes[chunkCount - 1] - 1];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E set(int index, E element) {
+        checkIndex(index);
+        int chunk = locate(index);
+        E previous = (E) chunks[chunk][locatedOffset];
+        chunks[chunk][locatedOffset] = element;
+        if (keys != null) {
+            keys[chunk][locatedOffset] = abbreviation.applyAsLong(element);
+        }
+        if (locatedOffset == 0) {
+            setMinimum(chunk);
+        }
+        return previous;
+    }
+
+    @Override
+    public void add(int index, E element) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        if (chunkCount == 0) {
+            insertChunk(0, new Object[INITIAL_CHUNK_LENGTH], keys == null ? null : new long[INITIAL_CHUNK_LENGTH], 0);
+            insertInto(0, 0, element);
+        } else if (index == size) {
+            insertInto(chunkCount - 1, sizes[chunkCount - 1], element);
+        } else {
+            int chunk = locate(index);
+            insertInto(chunk, locatedOffset, element);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void addAll(int index, Collection<? extends E> elements) {
+        if (size != 0 || elements.isEmpty()) {
+            SortedStorage.super.addAll(index, elements);
+            return;
+        }
+        // bulk load leaving a quarter of every chunk free for later insertions
+        int fill = Math.max(1, chunkCapacity * 3 / 4);
+        Object[] source = elements.toArray();
+        for (int from = 0; from < source.length; from += fill) {
+            int length = Math.min(fill, source.length - from);
+            Object[] chunk = new Object[chunkCapacity];
+            System.arraycopy(source, from, chunk, 0, length);
+            long[] chunkKeys = null;
+            if (keys != null) {
+                chunkKeys = new long[chunkCapacity];
+                for (int i = 0; i < length; i++) {
+                    chunkKeys[i] = abbreviation.applyAsLong((E) chunk[i]);
+                }
+            }
+            insertChunk(chunkCount, chunk, chunkKeys, length);
+        }
+        size = source.length;
+        rebuildTree();
+        modCount++;
+    }
+
+    @Override
+    public int insert(E element) {
+        if (chunkCount == 0) {
+            add(0, element);
+            return 0;
+        }
+        long probe = abbreviate(element);
+        int chunk = Math.max(0, lastChunkWithMinimumBelow(element, probe, true));
+        int offset = upperBound(chunk, element, probe);
+        int index = prefix(chunk) + offset;
+        insertInto(chunk, offset, element);
+        return index;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E remove(int index) {
+        checkIndex(index);
+        int chunk = locate(index);
+        int offset = locatedOffset;
+        Object[] elements = chunks[chunk];
+        E removed = (E) elements[offset];
+        System.arraycopy(elements, offset + 1, elements, offset, sizes[chunk] - offset - 1);
+        if (keys != null) {
+            System.arraycopy(keys[chunk], offset + 1, keys[chunk], offset, sizes[chunk] - offset - 1);
+        }
+        elements[--sizes[chunk]] = null;
+        size--;
+        modCount++;
+        if (sizes[chunk] == 0) {
+            removeChunk(chunk);
+            rebuildTree();
+            return removed;
+        }
+        fenwickAdd(chunk, -1);
+        if (offset == 0) {
+            setMinimum(chunk);
+        }
+        if (sizes[chunk] < chunkCapacity / 4) {
+            rebalance(chunk);
+        }
+        return removed;
+    }
+
+    /**
+     * Cuts the partially covered chunks at both ends of the block and drops the chunks in between by one shift of the chunk arrays,
+     * so the removal takes O(log n + c) where c is the number of chunks, instead of shifting every chunk once per element.
+     */
+    @Override
+    public void removeRange(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > size || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("fromIndex: " + fromIndex + ", toIndex: " + toIndex + ", Size: " + size);
+        }
+        if (fromIndex == toIndex) {
+            return;
+        }
+        int first = locate(fromIndex);
+        int firstOffset = locatedOffset;
+        int last = locate(toIndex - 1);
+        int lastEnd = locatedOffset + 1;
+        if (first == last && (firstOffset > 0 || lastEnd < sizes[last])) {
+            cut(first, firstOffset, lastEnd);
+        } else {
+            int start = first;
+            int end = last + 1;
+            if (firstOffset > 0) {
+                cut(first, firstOffset, sizes[first]);
+                start++;
+            }
+            if (lastEnd < sizes[last]) {
+                cut(last, 0, lastEnd);
+                end--;
+            }
+            removeChunks(start, end);
+        }
+        size -= toIndex - fromIndex;
+        modCount++;
+        rebuildTree();
+        if (first < chunkCount && sizes[first] < chunkCapacity / 4) {
+            rebalance(first);
+        }
+        if (first + 1 < chunkCount && sizes[first + 1] < chunkCapacity / 4) {
+            rebalance(first + 1);
+        }
+    }
+
+    @Override
+    public int lowerBound(E key) {
+        long probe = abbreviate(key);
+        int chunk = lastChunkWithMinimumBelow(key, probe, false);
+        return chunk < 0 ? 0 : prefix(chunk) + lowerBound(chunk, key, probe);
+    }
+
+    @Override
+    public int upperBound(E key) {
+        long probe = abbreviate(key);
+        int chunk = lastChunkWithMinimumBelow(key, probe, true);
+        return chunk < 0 ? 0 : prefix(chunk) + upperBound(chunk, key, probe);
+    }
+
+    @Override
+    public void clear() {
+        chunks = new Object[4][];
+        sizes = new int[4];
+        minimums = new Object[4];
+        if (keys != null) {
+            keys = new long[4][];
+            minimumKeys = new long[4];
+        }
+        tree = new int[5];
+        chunkCount = 0;
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public StorageStatistics statistics() {
+        return new StorageStatistics(StorageEngine.CHUNKED_ARRAY, 0, 0, 0, comparisonCount, fullComparisonCount);
+    }
+
+    @Override
+    public ListIterator<E> listIterator(int index) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return new Cursor(index);
+    }
+
+    @Override
+    public Object[] toArray() {
+        Object[] result = new Object[size];
+        int position = 0;
+        for (int i = 0; i < chunkCount; i++) {
+            System.arraycopy(chunks[i], 0, result, position, sizes[i]);
+            position += sizes[i];
+        }
+        return result;
+    }
+
+    /**
+     * Inserts the element into the specified chunk at the specified offset, splitting the chunk if it is full.
+     */
+    private void insertInto(int chunk, int offset, E element) {
+        if (sizes[chunk] == chunkCapacity) {
+            split(chunk);
+            if (offset > sizes[chunk]) {
+                offset -= sizes[chunk];
+                chunk++;
+            }
+        }
+        ensureChunkLength(chunk, sizes[chunk] + 1);
+        Object[] elements = chunks[chunk];
+        System.arraycopy(elements, offset, elements, offset + 1, sizes[chunk] - offset);
+        elements[offset] = element;
+        if (keys != null) {
+            System.arraycopy(keys[chunk], offset, keys[chunk], offset + 1, sizes[chunk] - offset);
+            keys[chunk][offset] = abbreviation.applyAsLong(element);
+        }
+        sizes[chunk]++;
+        if (offset == 0) {
+            setMinimum(chunk);
+        }
+        fenwickAdd(chunk, 1);
+        size++;
+        modCount++;
+    }
+
+    private void split(int chunk) {
+        int half = sizes[chunk] / 2;
+        int moved = sizes[chunk] - half;
+        Object[] upper = new Object[chunkCapacity];
+        System.arraycopy(chunks[chunk], half, upper, 0, moved);
+        Arrays.fill(chunks[chunk], half, sizes[chunk], null);
+        long[] upperKeys = null;
+        if (keys != null) {
+            upperKeys = new long[chunkCapacity];
+            System.arraycopy(keys[chunk], half, upperKeys, 0, moved);
+        }
+        sizes[chunk] = half;
+        insertChunk(chunk + 1, upper, upperKeys, moved);
+        rebuildTree();
+    }
+
+    /**
+     * Merges the underfilled chunk with its neighbour, or moves elements from the neighbour if they would not fit into one chunk.
+     */
+    private void rebalance(int chunk) {
+        if (chunkCount == 1) {
+            return;
+        }
+        int left = chunk + 1 < chunkCount ? chunk : chunk - 1;
+        int right = left + 1;
+        int total = sizes[left] + sizes[right];
+        if (total <= chunkCapacity * 3 / 4) {
+            ensureChunkLength(left, total);
+            System.arraycopy(chunks[right], 0, chunks[left], sizes[left], sizes[right]);
+            if (keys != null) {
+                System.arraycopy(keys[right], 0, keys[left], sizes[left], sizes[right]);
+            }
+            sizes[left] = total;
+            removeChunk(right);
+        } else {
+            int leftSize = total / 2;
+            ensureChunkLength(left, leftSize);
+            ensureChunkLength(right, total - leftSize);
+            Object[] leftElements = chunks[left];
+            Object[] rightElements = chunks[right];
+            if (sizes[left] < leftSize) {
+                int moved = leftSize - sizes[left];
+                System.arraycopy(rightElements, 0, leftElements, sizes[left], moved);
+                System.arraycopy(rightElements, moved, rightElements, 0, sizes[right] - moved);
+                Arrays.fill(rightElements, sizes[right] - moved, sizes[right], null);
+                if (keys != null) {
+                    System.arraycopy(keys[right], 0, keys[left], sizes[left], moved);
+                    System.arraycopy(keys[right], moved, keys[right], 0, sizes[right] - moved);
+                }
+            } else {
+                int moved = sizes[left] - leftSize;
+                System.arraycopy(rightElements, 0, rightElements, moved, sizes[right]);
+                System.arraycopy(leftElements, leftSize, rightElements, 0, moved);
+                Arrays.fill(leftElements, leftSize, sizes[left], null);
+                if (keys != null) {
+                    System.arraycopy(keys[right], 0, keys[right], moved, sizes[right]);
+                    System.arraycopy(keys[left], leftSize, keys[right], 0, moved);
+                }
+            }
+            sizes[left] = leftSize;
+            sizes[right] = total - leftSize;
+            setMinimum(right);
+        }
+        rebuildTree();
+    }
+
+    private void ensureChunkLength(int chunk, int length) {
+        if (chunks[chunk].length < length) {
+            int newLength = Math.min(chunkCapacity, Math.max(length, chunks[chunk].length * 2));
+            chunks[chunk] = Arrays.copyOf(chunks[chunk], newLength);
+            if (keys != null) {
+                keys[chunk] = Arrays.copyOf(keys[chunk], newLength);
+            }
+        }
+    }
+
+    private void setMinimum(int chunk) {
+        minimums[chunk] = chunks[chunk][0];
+        if (keys != null) {
+            minimumKeys[chunk] = keys[chunk][0];
+        }
+    }
+
+    private void insertChunk(int chunk, Object[] elements, long[] elementKeys, int chunkSize) {
+        if (chunkCount == chunks.length) {
+            int newLength = chunks.length * 2;
+            chunks = Arrays.copyOf(chunks, newLength);
+            sizes = Arrays.copyOf(sizes, newLength);
+            minimums = Arrays.copyOf(minimums, newLength);
+            if (keys != null) {
+                keys = Arrays.copyOf(keys, newLength);
+                minimumKeys = Arrays.copyOf(minimumKeys, newLength);
+            }
+        }
+        System.arraycopy(chunks, chunk, chunks, chunk + 1, chunkCount - chunk);
+        System.arraycopy(sizes, chunk, sizes, chunk + 1, chunkCount - chunk);
+        System.arraycopy(minimums, chunk, minimums, chunk + 1, chunkCount - chunk);
+        if (keys != null) {
+            System.arraycopy(keys, chunk, keys, chunk + 1, chunkCount - chunk);
+            System.arraycopy(minimumKeys, chunk, minimumKeys, chunk + 1, chunkCount - chunk);
+            keys[chunk] = elementKeys;
+        }
+        chunks[chunk] = elements;
+        sizes[chunk] = chunkSize;
+        chunkCount++;
+        setMinimum(chunk);
+    }
+
+    private void removeChunk(int chunk) {
+        System.arraycopy(chunks, chunk + 1, chunks, chunk, chunkCount - chunk - 1);
+        System.arraycopy(sizes, chunk + 1, sizes, chunk, chunkCount - chunk - 1);
+        System.arraycopy(minimums, chunk + 1, minimums, chunk, chunkCount - chunk - 1);
+        if (keys != null) {
+            System.arraycopy(keys, chunk + 1, keys, chunk, chunkCount - chunk - 1);
+            System.arraycopy(minimumKeys, chunk + 1, minimumKeys, chunk, chunkCount - chunk - 1);
+            keys[chunkCount - 1] = null;
+        }
+        chunkCount--;
+        chunks[chunkCount] = null;
+        sizes[chunkCount] = 0;
+        minimums[chunkCount] = null;
+    }
+
+    /**
+     * Removes the elements of the chunk in the specified range of offsets, leaving the chunk non-empty.
+     */
+    private void cut(int chunk, int from, int to) {
+        Object[] elements = chunks[chunk];
+        System.arraycopy(elements, to, elements, from, sizes[chunk] - to);
+        if (keys != null) {
+            System.arraycopy(keys[chunk], to, keys[chunk], from, sizes[chunk] - to);
+        }
+        Arrays.fill(elements, sizes[chunk] - (to - from), sizes[chunk], null);
+        sizes[chunk] -= to - from;
+        if (from == 0) {
+            setMinimum(chunk);
+        }
+    }
+
+    /**
+     * Removes the chunks in the specified range.
+     */
+    private void removeChunks(int from, int to) {
+        int removed = to - from;
+        if (removed == 0) {
+            return;
+        }
+        System.arraycopy(chunks, to, chunks, from, chunkCount - to);
+        System.arraycopy(sizes, to, sizes, from, chunkCount - to);
+        System.arraycopy(minimums, to, minimums, from, chunkCount - to);
+        if (keys != null) {
+            System.arraycopy(keys, to, keys, from, chunkCount - to);
+            System.arraycopy(minimumKeys, to, minimumKeys, from, chunkCount - to);
+            Arrays.fill(keys, chunkCount - removed, chunkCount, null);
+        }
+        Arrays.fill(chunks, chunkCount - removed, chunkCount, null);
+        Arrays.fill(sizes, chunkCount - removed, chunkCount, 0);
+        Arrays.fill(minimums, chunkCount - removed, chunkCount, null);
+        chunkCount -= removed;
+    }
+
+    /**
+     * Returns the last chunk whose minimum is less than (or equal to if {@code inclusive}) the key, or -1 if there is no such chunk.
+     */
+    private int lastChunkWithMinimumBelow(E key, long probe, boolean inclusive) {
+        int chunk = FingerSearch.firstMatch(i -> {
+            int comparison = compare(minimums[i], minimumKeys == null ? 0 : minimumKeys[i], key, probe);
+            return comparison > 0 || !inclusive && comparison == 0;
+        }, chunkCount, searchFinger + 1) - 1;
+        searchFinger = Math.max(chunk, 0);
+        return chunk;
+    }
+
+    private int lowerBound(int chunk, E key, long probe) {
+        Object[] elements = chunks[chunk];
+        long[] elementKeys = keys == null ? null : keys[chunk];
+        int low = 0;
+        int high = sizes[chunk];
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compare(elements[middle], elementKeys == null ? 0 : elementKeys[middle], key, probe) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int upperBound(int chunk, E key, long probe) {
+        Object[] elements = chunks[chunk];
+        long[] elementKeys = keys == null ? null : keys[chunk];
+        int low = 0;
+        int high = sizes[chunk];
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compare(elements[middle], elementKeys == null ? 0 : elementKeys[middle], key, probe) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Compares the element with the key, comparing their abbreviated keys first if they are kept.
+     */
+    @SuppressWarnings("unchecked")
+    private int compare(Object element, long elementKey, E key, long probe) {
+        if (keys == null) {
+            return comparator.compare((E) element, key);
+        }
+        comparisonCount++;
+        if (elementKey != probe) {
+            return elementKey < probe ? -1 : 1;
+        }
+        fullComparisonCount++;
+        return comparator.compare((E) element, key);
+    }
+
+    private long abbreviate(E key) {
+        return abbreviation == null ? 0 : abbreviation.applyAsLong(key);
+    }
+
+    private void rebuildTree() {
+        if (tree.length <= chunkCount) {
+            tree = new int[chunks.length + 1];
+        } else {
+            Arrays.fill(tree, 0);
+        }
+        for (int i = 1; i <= chunkCount; i++) {
+            tree[i] += sizes[i - 1];
+            int parent = i + (i & -i);
+            if (parent <= chunkCount) {
+                tree[parent] += tree[i];
+            }
+        }
+    }
+
+    private void fenwickAdd(int chunk, int delta) {
+        for (int i = chunk + 1; i <= chunkCount; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /**
+     * Returns the number of elements in the chunks preceding the specified chunk.
+     */
+    private int prefix(int chunk) {
+        int sum = 0;
+        for (int i = chunk; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Returns the chunk containing the element at the specified index and stores the offset of the element in {@link #locatedOffset}.
+     */
+    private int locate(int index) {
+        if (fingerModCount == modCount) {
+            int chunk = fingerChunk;
+            int start = fingerStart;
+            if (index < start && chunk > 0 && index >= start - sizes[chunk - 1]) {
+                chunk--;
+                start -= sizes[chunk];
+            } else if (index >= start + sizes[chunk] && chunk + 1 < chunkCount && index < start + sizes[chunk] + sizes[chunk + 1]) {
+                start += sizes[chunk];
+                chunk++;
+            }
+            if (index >= start && index < start + sizes[chunk]) {
+                fingerChunk = chunk;
+                fingerStart = start;
+                locatedOffset = index - start;
+                return chunk;
+            }
+        }
+        int position = 0;
+        int remaining = index;
+        for (int step = Integer.highestOneBit(chunkCount); step > 0; step >>= 1) {
+            if (position + step <= chunkCount && tree[position + step] <= remaining) {
+                position += step;
+                remaining -= tree[position];
+            }
+        }
+        locatedOffset = remaining;
+        fingerChunk = position;
+        fingerStart = index - remaining;
+        fingerModCount = modCount;
+        return position;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    private final class Cursor implements ListIterator<E> {
+        private int nextIndex;
+
+        private int chunk;
+
+        private int chunkStart;
+
+        private int lastReturned = -1;
+
+        private int expectedModCount = modCount;
+
+        private Cursor(int index) {
+            seek(index);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextIndex < size;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public E next() {
+            checkForComodification();
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            while (nextIndex >= chunkStart + sizes[chunk]) {
+                chunkStart += sizes[chunk++];
+            }
+            lastReturned = nextIndex++;
+            return (E) chunks[chunk][lastReturned - chunkStart];
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return nextIndex > 0;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public E previous() {
+            checkForComodification();
+            if (!hasPrevious()) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = --nextIndex;
+            while (nextIndex < chunkStart) {
+                chunkStart -= sizes[--chunk];
+            }
+            return (E) chunks[chunk][lastReturned - chunkStart];
+        }
+
+        @Override
+        public int nextIndex() {
+            return nextIndex;
+        }
+
+        @Override
+        public int previousIndex() {
+            return nextIndex - 1;
+        }
+
+        @Override
+        public void remove() {
+            checkForComodification();
+            if (lastReturned < 0) {
+                throw new IllegalStateException();
+            }
+            ChunkedArrayStorage.this.remove(lastReturned);
+            seek(lastReturned);
+            lastReturned = -1;
+        }
+
+        @Override
+        public void set(E e) {
+            checkForComodification();
+            if (lastReturned < 0) {
+                throw new IllegalStateException();
+            }
+            ChunkedArrayStorage.this.set(lastReturned, e);
+        }
+
+        @Override
+        public void add(E e) {
+            checkForComodification();
+            ChunkedArrayStorage.this.add(nextIndex, e);
+            seek(nextIndex + 1);
+            lastReturned = -1;
+        }
+
+        private void seek(int index) {
+            nextIndex = index;
+            expectedModCount = modCount;
+            if (index < size) {
+                chunk = locate(index);
+                chunkStart = index - locatedOffset;
+            } else {
+                chunk = Math.max(0, chunkCount - 1);
+                chunkStart = size - sizes[chunk];
+            }
+        }
+
+        private void checkForComodification() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+}
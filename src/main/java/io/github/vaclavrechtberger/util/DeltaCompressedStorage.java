@@ -0,0 +1,469 @@
+package io.github.vaclavrechtberger.util;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.function.LongFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Compressed storage of elements representable by a {@code long} (e.g., {@link Long}, {@link Integer} or identifiers).
+ * The elements are kept in blocks: the first value of every block is stored as it is (block head) and the following ones as
+ * zigzag-encoded varint differences to their predecessors, so dense sorted values take one or two bytes each.
+ * The block heads and a Fenwick tree over the block sizes form a skip index, so both key-based and positional lookups
+ * find the right block in O(log b) and decode only this block. The last decoded block is cached, so sequential reads
+ * (e.g., iteration or range scans) decode every block once.
+ * An insertion or removal re-encodes one block; a full block is split into halves and a block filled less than a quarter
+ * is merged with its neighbour if they fit into one block. Removing a range re-encodes only the two blocks at its ends
+ * and drops the blocks between them at once.
+ * Null elements are not supported.
+ *
+ * @param <E> the type of elements held in this storage
+ */
+final class DeltaCompressedStorage<E> extends AbstractSortedStorage<E> {
+    static final int DEFAULT_BLOCK_CAPACITY = 128;
+
+    /**
+     * Maximal length of a varint encoding of a {@code long}.
+     */
+    private static final int MAX_VARINT_LENGTH = 10;
+
+    private final ToLongFunction<? super E> toLong;
+
+    private final LongFunction<? extends E> fromLong;
+
+    private final int blockCapacity;
+
+    private byte[][] blocks = new byte[4][];
+
+    private long[] heads = new long[4];
+
+    private int[] counts = new int[4];
+
+    /**
+     * Fenwick tree over {@link #counts} (1-based).
+     */
+    private int[] tree = new int[5];
+
+    private int blockCount;
+
+    private int size;
+
+    /**
+     * Values of the block {@link #decodedBlock}, valid while {@link #modCount} equals {@link #decodedModCount}.
+     * It has room for one more value than a block holds, so an insertion can precede the split.
+     */
+    private final long[] decoded;
+
+    private int decodedBlock = -1;
+
+    private int decodedModCount;
+
+    private final byte[] scratch;
+
+    /**
+     * Offset within the block found by the last call of {@link #locate(int)}.
+     */
+    private int locatedOffset;
+
+    /**
+     * Block found by the last positional lookup and the index of its first value, valid while {@link #modCount} equals {@link #fingerModCount}.
+     */
+    private int fingerBlock;
+
+    private int fingerStart;
+
+    private int fingerModCount = -1;
+
+    /**
+     * Block found by the last search by value.
+     */
+    private int searchFinger;
+
+    DeltaCompressedStorage(Comparator<? super E> comparator, ToLongFunction<? super E> toLong, LongFunction<? extends E> fromLong) {
+        this(comparator, toLong, fromLong, DEFAULT_BLOCK_CAPACITY);
+    }
+
+    DeltaCompressedStorage(Comparator<? super E> comparator, ToLongFunction<? super E> toLong, LongFunction<? extends E> fromLong, int blockCapacity) {
+        super(comparator);
+        if (blockCapacity < 4) {
+            throw new IllegalArgumentException("Block capacity must be at least 4: " + blockCapacity);
+        }
+        this.toLong = toLong;
+        this.fromLong = fromLong;
+        this.blockCapacity = blockCapacity;
+        this.decoded = new long[blockCapacity + 1];
+        this.scratch = new byte[blockCapacity * MAX_VARINT_LENGTH];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public E get(int index) {
+        checkIndex(index);
+        int block = locate(index);
+        decode(block);
+        return fromLong.apply(decoded[locatedOffset]);
+    }
+
+    @Override
+    public E first() {
+        checkIndex(0);
+        return fromLong.apply(heads[0]);
+    }
+
+    @Override
+    public E set(int index, E element) {
+        checkIndex(index);
+        int block = locate(index);
+        decode(block);
+        E previous = fromLong.apply(decoded[locatedOffset]);
+        decoded[locatedOffset] = toLong.applyAsLong(element);
+        encode(block, decoded, 0, counts[block]);
+        return previous;
+    }
+
+    @Override
+    public void add(int index, E element) {
+        checkPositionIndex(index);
+        if (blockCount == 0) {
+            insertBlock(0);
+            insertInto(0, 0, element);
+        } else if (index == size) {
+            insertInto(blockCount - 1, counts[blockCount - 1], element);
+        } else {
+            int block = locate(index);
+            insertInto(block, locatedOffset, element);
+        }
+    }
+
+    @Override
+    public void addAll(int index, Collection<? extends E> elements) {
+        if (size != 0 || elements.isEmpty()) {
+            super.addAll(index, elements);
+            return;
+        }
+        long[] values = new long[elements.size()];
+        int i = 0;
+        for (E element : elements) {
+            values[i++] = toLong.applyAsLong(element);
+        }
+        for (int from = 0; from < values.length; from += blockCapacity) {
+            insertBlock(blockCount);
+            encode(blockCount - 1, values, from, Math.min(blockCapacity, values.length - from));
+        }
+        size = values.length;
+        rebuildTree();
+        modCount++;
+    }
+
+    @Override
+    public int insert(E element) {
+        if (blockCount == 0) {
+            add(0, element);
+            return 0;
+        }
+        int block = Math.max(0, lastBlockWithHeadBelow(element, true));
+        int offset = bound(block, element, true);
+        int index = prefix(block) + offset;
+        insertInto(block, offset, element);
+        return index;
+    }
+
+    @Override
+    public E remove(int index) {
+        checkIndex(index);
+        int block = locate(index);
+        int offset = locatedOffset;
+        decode(block);
+        E removed = fromLong.apply(decoded[offset]);
+        int count = counts[block];
+        System.arraycopy(decoded, offset + 1, decoded, offset, count - offset - 1);
+        size--;
+        modCount++;
+        if (count == 1) {
+            removeBlocks(block, block + 1);
+            rebuildTree();
+            return removed;
+        }
+        encode(block, decoded, 0, count - 1);
+        fenwickAdd(block, -1);
+        if (counts[block] < blockCapacity / 4) {
+            merge(block);
+        }
+        return removed;
+    }
+
+    @Override
+    public void removeRange(int fromIndex, int toIndex) {
+        checkRange(fromIndex, toIndex);
+        if (fromIndex == toIndex) {
+            return;
+        }
+        int firstBlock = locate(fromIndex);
+        // values kept before the range in the first block and after it in the last block
+        int head = locatedOffset;
+        int lastBlock = locate(toIndex - 1);
+        int tail = counts[lastBlock] - locatedOffset - 1;
+        int removedFrom = head > 0 ? firstBlock + 1 : firstBlock;
+        int removedTo = tail > 0 ? lastBlock : lastBlock + 1;
+        if (firstBlock == lastBlock) {
+            if (head + tail > 0) {
+                decode(firstBlock);
+                System.arraycopy(decoded, counts[firstBlock] - tail, decoded, head, tail);
+                encode(firstBlock, decoded, 0, head + tail);
+                removedFrom = removedTo;
+            }
+        } else {
+            if (tail > 0) {
+                decode(lastBlock);
+                encode(lastBlock, decoded, counts[lastBlock] - tail, tail);
+            }
+            if (head > 0) {
+                decode(firstBlock);
+                encode(firstBlock, decoded, 0, head);
+            }
+        }
+        removeBlocks(removedFrom, removedTo);
+        size -= toIndex - fromIndex;
+        modCount++;
+        rebuildTree();
+        int seam = Math.min(firstBlock, blockCount - 1);
+        if (seam >= 0 && counts[seam] < blockCapacity / 4) {
+            merge(seam);
+        }
+    }
+
+    @Override
+    public int lowerBound(E key) {
+        int block = lastBlockWithHeadBelow(key, false);
+        return block < 0 ? 0 : prefix(block) + bound(block, key, false);
+    }
+
+    @Override
+    public int upperBound(E key) {
+        int block = lastBlockWithHeadBelow(key, true);
+        return block < 0 ? 0 : prefix(block) + bound(block, key, true);
+    }
+
+    @Override
+    public void clear() {
+        blocks = new byte[4][];
+        heads = new long[4];
+        counts = new int[4];
+        tree = new int[5];
+        blockCount = 0;
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * Inserts the element into the specified block at the specified offset, splitting the block if it overflows.
+     */
+    private void insertInto(int block, int offset, E element) {
+        decode(block);
+        int count = counts[block];
+        System.arraycopy(decoded, offset, decoded, offset + 1, count - offset);
+        decoded[offset] = toLong.applyAsLong(element);
+        count++;
+        if (count > blockCapacity) {
+            int half = count / 2;
+            encode(block, decoded, 0, half);
+            insertBlock(block + 1);
+            encode(block + 1, decoded, half, count - half);
+            rebuildTree();
+        } else {
+            encode(block, decoded, 0, count);
+            fenwickAdd(block, 1);
+        }
+        size++;
+        modCount++;
+    }
+
+    /**
+     * Merges the underfilled block with its neighbour if they fit into three quarters of a block.
+     */
+    private void merge(int block) {
+        if (blockCount == 1) {
+            return;
+        }
+        int left = block + 1 < blockCount ? block : block - 1;
+        int right = left + 1;
+        int total = counts[left] + counts[right];
+        if (total <= blockCapacity * 3 / 4) {
+            decodeInto(left, decoded, 0);
+            decodeInto(right, decoded, counts[left]);
+            encode(left, decoded, 0, total);
+            removeBlocks(right, right + 1);
+            rebuildTree();
+            modCount++;
+        }
+    }
+
+    /**
+     * Decodes the specified block into {@link #decoded} unless it is cached there.
+     */
+    private void decode(int block) {
+        if (decodedBlock != block || decodedModCount != modCount) {
+            decodeInto(block, decoded, 0);
+            decodedBlock = block;
+            decodedModCount = modCount;
+        }
+    }
+
+    private void decodeInto(int block, long[] target, int position) {
+        byte[] bytes = blocks[block];
+        long value = heads[block];
+        target[position] = value;
+        int p = 0;
+        for (int i = 1; i < counts[block]; i++) {
+            long zigzag = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = bytes[p++];
+                zigzag |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            value += (zigzag >>> 1) ^ -(zigzag & 1);
+            target[position + i] = value;
+        }
+    }
+
+    /**
+     * Encodes the specified values into the specified block. The cached decoded block is invalidated.
+     */
+    private void encode(int block, long[] values, int from, int count) {
+        int length = 0;
+        for (int i = from + 1; i < from + count; i++) {
+            long delta = values[i] - values[i - 1];
+            long zigzag = (delta << 1) ^ (delta >> 63);
+            while ((zigzag & ~0x7FL) != 0) {
+                scratch[length++] = (byte) (zigzag & 0x7F | 0x80);
+                zigzag >>>= 7;
+            }
+            scratch[length++] = (byte) zigzag;
+        }
+        blocks[block] = Arrays.copyOf(scratch, length);
+        heads[block] = values[from];
+        counts[block] = count;
+        decodedBlock = -1;
+    }
+
+    private void insertBlock(int block) {
+        if (blockCount == blocks.length) {
+            int newLength = blocks.length * 2;
+            blocks = Arrays.copyOf(blocks, newLength);
+            heads = Arrays.copyOf(heads, newLength);
+            counts = Arrays.copyOf(counts, newLength);
+        }
+        System.arraycopy(blocks, block, blocks, block + 1, blockCount - block);
+        System.arraycopy(heads, block, heads, block + 1, blockCount - block);
+        System.arraycopy(counts, block, counts, block + 1, blockCount - block);
+        blocks[block] = new byte[0];
+        counts[block] = 0;
+        blockCount++;
+    }
+
+    /**
+     * Removes the blocks from {@code from}, inclusive, to {@code to}, exclusive.
+     */
+    private void removeBlocks(int from, int to) {
+        System.arraycopy(blocks, to, blocks, from, blockCount - to);
+        System.arraycopy(heads, to, heads, from, blockCount - to);
+        System.arraycopy(counts, to, counts, from, blockCount - to);
+        Arrays.fill(blocks, blockCount - (to - from), blockCount, null);
+        Arrays.fill(counts, blockCount - (to - from), blockCount, 0);
+        blockCount -= to - from;
+        decodedBlock = -1;
+    }
+
+    /**
+     * Returns the last block whose head is less than (or equal to if {@code inclusive}) the key, or -1 if there is no such block.
+     */
+    private int lastBlockWithHeadBelow(E key, boolean inclusive) {
+        int block = FingerSearch.firstMatch(i -> {
+            int comparison = comparator.compare(fromLong.apply(heads[i]), key);
+            return comparison > 0 || !inclusive && comparison == 0;
+        }, blockCount, searchFinger + 1) - 1;
+        searchFinger = Math.max(block, 0);
+        return block;
+    }
+
+    /**
+     * Returns the offset of the first value of the block greater than (if {@code upper}) or not less than the key.
+     */
+    private int bound(int block, E key, boolean upper) {
+        decode(block);
+        int low = 0;
+        int high = counts[block];
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int comparison = comparator.compare(fromLong.apply(decoded[middle]), key);
+            if (comparison < 0 || upper && comparison == 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private void rebuildTree() {
+        if (tree.length <= blockCount) {
+            tree = new int[blocks.length + 1];
+        } else {
+            Arrays.fill(tree, 0);
+        }
+        for (int i = 1; i <= blockCount; i++) {
+            tree[i] += counts[i - 1];
+            int parent = i + (i & -i);
+            if (parent <= blockCount) {
+                tree[parent] += tree[i];
+            }
+        }
+    }
+
+    private void fenwickAdd(int block, int delta) {
+        for (int i = block + 1; i <= blockCount; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /**
+     * Returns the number of values in the blocks preceding the specified block.
+     */
+    private int prefix(int block) {
+        int sum = 0;
+        for (int i = block; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Returns the block containing the value at the specified index and stores the offset of the value in {@link #locatedOffset}.
+     */
+    private int locate(int index) {
+        if (fingerModCount == modCount && index >= fingerStart && index < fingerStart + counts[fingerBlock]) {
+            locatedOffset = index - fingerStart;
+            return fingerBlock;
+        }
+        int position = 0;
+        int remaining = index;
+        for (int step = Integer.highestOneBit(blockCount); step > 0; step >>= 1) {
+            if (position + step <= blockCount && tree[position + step] <= remaining) {
+                position += step;
+                remaining -= tree[position];
+            }
+        }
+        locatedOffset = remaining;
+        fingerBlock = position;
+        fingerStart = index - remaining;
+        fingerModCount = modCount;
+        return position;
+    }
+}
@@ -0,0 +1,320 @@
+package io.github.vaclavrechtberger.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Storage which removes its elements once they expire, in front of another storage.
+ * Every inserted element gets its expiry time (on the scale of the clock) and is registered in a binary heap ordered by it,
+ * so the elements due for expiry are found without scanning and every expired element is removed in O(log n).
+ * The expired elements are removed by {@link #expire()}, which the owner calls at the start of its operations,
+ * so the cost is spread over the operations instead of periodic full scans.
+ * <p>
+ * An element removed before its expiry is not searched in the heap; its removal is recorded and the heap entry is dropped once it is due.
+ * Once the recorded removals outnumber the elements, the heap is rebuilt without their entries, so neither the heap nor the record
+ * grows beyond the size of the storage when elements far from their expiry are removed often.
+ * The expiring element is found by its key and identity, so equal instances expire independently.
+ *
+ * @param <E> the type of elements held in this storage
+ */
+final class ExpiringStorage<E> implements SortedStorage<E> {
+    private final SortedStorage<E> delegate;
+
+    private final Comparator<? super E> comparator;
+
+    private final ToLongFunction<? super E> expiry;
+
+    private final LongSupplier clock;
+
+    private PriorityQueue<Entry<E>> entries = new PriorityQueue<>();
+
+    /**
+     * Number of removed instances (by identity) whose heap entries are still pending.
+     */
+    private final Map<Object, Integer> removed = new IdentityHashMap<>();
+
+    /**
+     * Total number of pending removals recorded in {@link #removed}.
+     */
+    private int removedCount;
+
+    /**
+     * Creates a storage removing its elements at the time given by the expiry function.
+     *
+     * @param delegate the storage to keep the elements in
+     * @param expiry the function returning the time at which the element (being inserted) expires
+     * @param clock the clock giving the current time
+     */
+    ExpiringStorage(SortedStorage<E> delegate, ToLongFunction<? super E> expiry, LongSupplier clock) {
+        this.delegate = delegate;
+        this.comparator = delegate.comparator();
+        this.expiry = expiry;
+        this.clock = clock;
+    }
+
+    /**
+     * Removes all the elements whose expiry time has passed.
+     *
+     * @return the number of removed elements
+     */
+    int expire() {
+        if (entries.isEmpty()) {
+            return 0;
+        }
+        long now = clock.getAsLong();
+        int expired = 0;
+        while (!entries.isEmpty() && entries.peek().expiry <= now) {
+            E element = entries.poll().element;
+            if (!forget(element)) {
+                int index = indexOfInstance(element);
+                if (index >= 0) {
+                    delegate.remove(index);
+                    expired++;
+                }
+            }
+        }
+        return expired;
+    }
+
+    @Override
+    public Comparator<? super E> comparator() {
+        return comparator;
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    @Override
+    public E get(int index) {
+        return delegate.get(index);
+    }
+
+    @Override
+    public E first() {
+        return delegate.first();
+    }
+
+    @Override
+    public E last() {
+        return delegate.last();
+    }
+
+    @Override
+    public E set(int index, E element) {
+        E previous = delegate.set(index, element);
+        removed(previous);
+        register(element);
+        return previous;
+    }
+
+    @Override
+    public void add(int index, E element) {
+        delegate.add(index, element);
+        register(element);
+    }
+
+    @Override
+    public void addAll(int index, Collection<? extends E> elements) {
+        delegate.addAll(index, elements);
+        elements.forEach(this::register);
+    }
+
+    @Override
+    public int insert(E element) {
+        int index = delegate.insert(element);
+        register(element);
+        return index;
+    }
+
+    @Override
+    public E remove(int index) {
+        E element = delegate.remove(index);
+        removed(element);
+        return element;
+    }
+
+    @Override
+    public void removeRange(int fromIndex, int toIndex) {
+        if (!entries.isEmpty()) {
+            ListIterator<E> cursor = delegate.listIterator(fromIndex);
+            for (int i = fromIndex; i < toIndex; i++) {
+                removed(cursor.next());
+            }
+        }
+        delegate.removeRange(fromIndex, toIndex);
+    }
+
+    @Override
+    public int lowerBound(E key) {
+        return delegate.lowerBound(key);
+    }
+
+    @Override
+    public int upperBound(E key) {
+        return delegate.upperBound(key);
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+        entries.clear();
+        removed.clear();
+        removedCount = 0;
+    }
+
+    @Override
+    public ListIterator<E> listIterator(int index) {
+        ListIterator<E> cursor = delegate.listIterator(index);
+        return new ListIterator<>() {
+            private E lastReturned;
+
+            @Override
+            public boolean hasNext() {
+                return cursor.hasNext();
+            }
+
+            @Override
+            public E next() {
+                return lastReturned = cursor.next();
+            }
+
+            @Override
+            public boolean hasPrevious() {
+                return cursor.hasPrevious();
+            }
+
+            @Override
+            public E previous() {
+                return lastReturned = cursor.previous();
+            }
+
+            @Override
+            public int nextIndex() {
+                return cursor.nextIndex();
+            }
+
+            @Override
+            public int previousIndex() {
+                return cursor.previousIndex();
+            }
+
+            @Override
+            public void remove() {
+                cursor.remove();
+                removed(lastReturned);
+            }
+
+            @Override
+            public void set(E e) {
+                cursor.set(e);
+                removed(lastReturned);
+                register(e);
+                lastReturned = e;
+            }
+
+            @Override
+            public void add(E e) {
+                cursor.add(e);
+                register(e);
+            }
+        };
+    }
+
+    @Override
+    public StorageStatistics statistics() {
+        return delegate.statistics();
+    }
+
+    @Override
+    public Object[] toArray() {
+        return delegate.toArray();
+    }
+
+    private void register(E element) {
+        entries.add(new Entry<>(expiry.applyAsLong(element), element));
+    }
+
+    private void removed(E element) {
+        removed.merge(element, 1, Integer::sum);
+        if (++removedCount > delegate.size()) {
+            purge();
+        }
+    }
+
+    /**
+     * Rebuilds the heap without the entries of the removed instances, dropping the earliest entries of every instance as {@link #expire()} would.
+     */
+    private void purge() {
+        List<Entry<E>> kept = new ArrayList<>(entries.size());
+        while (!entries.isEmpty()) {
+            Entry<E> entry = entries.poll();
+            if (!forget(entry.element)) {
+                kept.add(entry);
+            }
+        }
+        // the entries are kept in the order of the heap, so the list already is a heap
+        entries = new PriorityQueue<>(kept);
+    }
+
+    /**
+     * Consumes a recorded removal of the instance.
+     *
+     * @return {@code true} if the instance had been removed before it expired
+     */
+    private boolean forget(E element) {
+        Integer count = removed.get(element);
+        if (count == null) {
+            return false;
+        }
+        if (count == 1) {
+            removed.remove(element);
+        } else {
+            removed.put(element, count - 1);
+        }
+        removedCount--;
+        return true;
+    }
+
+    /**
+     * Returns the index of the specified instance, searching the run of elements equal to it according to the comparator.
+     */
+    private int indexOfInstance(E element) {
+        ListIterator<E> iterator = delegate.listIterator(delegate.lowerBound(element));
+        while (iterator.hasNext()) {
+            E candidate = iterator.next();
+            if (candidate == element) {
+                return iterator.previousIndex();
+            }
+            if (comparator.compare(candidate, element) != 0) {
+                break;
+            }
+        }
+        return -1;
+    }
+
+    private static final class Entry<E> implements Comparable<Entry<E>> {
+        private final long expiry;
+
+        private final E element;
+
+        private Entry(long expiry, E element) {
+            this.expiry = expiry;
+            this.element = element;
+        }
+
+        @Override
+        public int compareTo(Entry<E> other) {
+            return Long.compare(expiry, other.expiry);
+        }
+    }
+}
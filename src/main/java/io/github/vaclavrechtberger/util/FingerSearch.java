@@ -0,0 +1,57 @@
+package io.github.vaclavrechtberger.util;
+
+import java.util.function.IntPredicate;
+
+/**
+ * Exponential (galloping) search starting at a finger, used by the storages with cheap random access.
+ */
+final class FingerSearch {
+    private FingerSearch() {
+    }
+
+    /**
+     * Returns the first index in {@code [0, size)} for which the monotone predicate holds, or {@code size} if there is no such index.
+     * The indexes are probed exponentially farther from the finger before the final binary search,
+     * so the search takes O(log d) probes where d is the distance of the result from the finger.
+     *
+     * @param predicate the predicate which is {@code false} for a (possibly empty) prefix of the indexes and {@code true} for the rest
+     * @param size the number of indexes
+     * @param finger the index to start at
+     * @return the first index for which the predicate holds, or {@code size}
+     */
+    static int firstMatch(IntPredicate predicate, int size, int finger) {
+        finger = Math.max(0, Math.min(finger, size));
+        int low;
+        int high;
+        if (finger == size || predicate.test(finger)) {
+            high = finger;
+            int step = 1;
+            low = finger - step;
+            while (low >= 0 && predicate.test(low)) {
+                high = low;
+                step <<= 1;
+                low = finger - step;
+            }
+            low = Math.max(low + 1, 0);
+        } else {
+            low = finger + 1;
+            int step = 1;
+            high = finger + step;
+            while (high < size && !predicate.test(high)) {
+                low = high + 1;
+                step <<= 1;
+                high = finger + step;
+            }
+            high = Math.min(high, size);
+        }
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (predicate.test(middle)) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+}
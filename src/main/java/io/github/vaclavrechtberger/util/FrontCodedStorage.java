@@ -0,0 +1,573 @@
+package io.github.vaclavrechtberger.util;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+
+/**
+ * Front-coded (prefix-compressed) storage of strings.
+ * The strings are kept in buckets: the first string of every bucket (bucket head) is kept as it is and the following ones
+ * as the length of the prefix shared with their predecessor and the remaining suffix, whose UTF-16 code units are written as varints
+ * (one byte per ASCII character, so any string, including one with unpaired surrogates, round-trips), so strings with long common prefixes
+ * (e.g., URLs or file paths) take little more than their distinct parts.
+ * The ordering is given by the comparator, so the storage works with any comparator (e.g., case-insensitive ones);
+ * only the compression depends on the exact characters.
+ * The bucket heads and a Fenwick tree over the bucket sizes form an index, so both key-based and positional lookups
+ * find the right bucket in O(log b) and decode only this bucket. The last decoded bucket is cached, so sequential reads
+ * decode every bucket once. Removing a range re-encodes only the two buckets at its ends and drops the buckets between them at once.
+ * Null elements are counted outside the buckets and placed where the comparator places them.
+ */
+final class FrontCodedStorage extends AbstractSortedStorage<String> {
+    static final int DEFAULT_BUCKET_CAPACITY = 16;
+
+    private final int bucketCapacity;
+
+    private byte[][] buckets = new byte[4][];
+
+    private String[] heads = new String[4];
+
+    private int[] counts = new int[4];
+
+    /**
+     * Fenwick tree over {@link #counts} (1-based).
+     */
+    private int[] tree = new int[5];
+
+    private int bucketCount;
+
+    /**
+     * Number of non-null strings.
+     */
+    private int valueCount;
+
+    private int nullCount;
+
+    /**
+     * Whether the comparator places null before the strings, known once the first null is added.
+     */
+    private boolean nullsFirst;
+
+    /**
+     * Strings of the bucket {@link #decodedBucket}, valid while {@link #modCount} equals {@link #decodedModCount}.
+     * It has room for one more string than a bucket holds, so an insertion can precede the split.
+     */
+    private final String[] decoded;
+
+    private int decodedBucket = -1;
+
+    private int decodedModCount;
+
+    private byte[] scratch = new byte[64];
+
+    /**
+     * Position of the next byte to be read by {@link #readVarint(byte[])}.
+     */
+    private int readPosition;
+
+    /**
+     * Offset within the bucket found by the last call of {@link #locate(int)}.
+     */
+    private int locatedOffset;
+
+    /**
+     * Bucket found by the last positional lookup and the index of its first string, valid while {@link #modCount} equals {@link #fingerModCount}.
+     */
+    private int fingerBucket;
+
+    private int fingerStart;
+
+    private int fingerModCount = -1;
+
+    /**
+     * Bucket found by the last search by value.
+     */
+    private int searchFinger;
+
+    FrontCodedStorage(Comparator<? super String> comparator) {
+        this(comparator, DEFAULT_BUCKET_CAPACITY);
+    }
+
+    FrontCodedStorage(Comparator<? super String> comparator, int bucketCapacity) {
+        super(comparator);
+        if (bucketCapacity < 4) {
+            throw new IllegalArgumentException("Bucket capacity must be at least 4: " + bucketCapacity);
+        }
+        this.bucketCapacity = bucketCapacity;
+        this.decoded = new String[bucketCapacity + 1];
+    }
+
+    @Override
+    public int size() {
+        return valueCount + nullCount;
+    }
+
+    @Override
+    public String get(int index) {
+        checkIndex(index);
+        int value = valueIndex(index);
+        if (value < 0) {
+            return null;
+        }
+        int bucket = locate(value);
+        decode(bucket);
+        return decoded[locatedOffset];
+    }
+
+    @Override
+    public String set(int index, String element) {
+        checkIndex(index);
+        int value = valueIndex(index);
+        if (value < 0 || element == null) {
+            String previous = remove(index);
+            add(index, element);
+            return previous;
+        }
+        int bucket = locate(value);
+        decode(bucket);
+        String previous = decoded[locatedOffset];
+        decoded[locatedOffset] = element;
+        encode(bucket, decoded, 0, counts[bucket]);
+        return previous;
+    }
+
+    @Override
+    public void add(int index, String element) {
+        checkPositionIndex(index);
+        if (element == null) {
+            addNull();
+            return;
+        }
+        int value = Math.min(Math.max(index - (nullsFirst ? nullCount : 0), 0), valueCount);
+        if (bucketCount == 0) {
+            insertBucket(0);
+            insertInto(0, 0, element);
+        } else if (value == valueCount) {
+            insertInto(bucketCount - 1, counts[bucketCount - 1], element);
+        } else {
+            int bucket = locate(value);
+            insertInto(bucket, locatedOffset, element);
+        }
+    }
+
+    @Override
+    public void addAll(int index, Collection<? extends String> elements) {
+        if (size() != 0 || elements.isEmpty()) {
+            super.addAll(index, elements);
+            return;
+        }
+        String[] values = new String[elements.size()];
+        int count = 0;
+        for (String element : elements) {
+            if (element == null) {
+                addNull();
+            } else {
+                values[count++] = element;
+            }
+        }
+        for (int from = 0; from < count; from += bucketCapacity) {
+            insertBucket(bucketCount);
+            encode(bucketCount - 1, values, from, Math.min(bucketCapacity, count - from));
+        }
+        valueCount = count;
+        rebuildTree();
+        modCount++;
+    }
+
+    @Override
+    public int insert(String element) {
+        if (element == null) {
+            addNull();
+            return nullsFirst ? nullCount - 1 : size() - 1;
+        }
+        int offset = nullsFirst ? nullCount : 0;
+        if (bucketCount == 0) {
+            add(offset, element);
+            return offset;
+        }
+        int bucket = Math.max(0, lastBucketWithHeadBelow(element, true));
+        int position = bound(bucket, element, true);
+        int index = offset + prefix(bucket) + position;
+        insertInto(bucket, position, element);
+        return index;
+    }
+
+    @Override
+    public String remove(int index) {
+        checkIndex(index);
+        int value = valueIndex(index);
+        if (value < 0) {
+            nullCount--;
+            modCount++;
+            return null;
+        }
+        int bucket = locate(value);
+        int offset = locatedOffset;
+        decode(bucket);
+        String removed = decoded[offset];
+        int count = counts[bucket];
+        System.arraycopy(decoded, offset + 1, decoded, offset, count - offset - 1);
+        valueCount--;
+        modCount++;
+        if (count == 1) {
+            removeBuckets(bucket, bucket + 1);
+            rebuildTree();
+            return removed;
+        }
+        encode(bucket, decoded, 0, count - 1);
+        fenwickAdd(bucket, -1);
+        if (counts[bucket] < bucketCapacity / 4) {
+            merge(bucket);
+        }
+        return removed;
+    }
+
+    @Override
+    public void removeRange(int fromIndex, int toIndex) {
+        checkRange(fromIndex, toIndex);
+        int offset = nullsFirst ? nullCount : 0;
+        int nullStart = nullsFirst ? 0 : valueCount;
+        int nulls = Math.max(0, Math.min(toIndex, nullStart + nullCount) - Math.max(fromIndex, nullStart));
+        removeValues(Math.min(Math.max(fromIndex - offset, 0), valueCount), Math.min(Math.max(toIndex - offset, 0), valueCount));
+        if (nulls > 0) {
+            nullCount -= nulls;
+            modCount++;
+        }
+    }
+
+    @Override
+    public int lowerBound(String key) {
+        if (key == null) {
+            return placesNullFirst() ? 0 : valueCount;
+        }
+        int bucket = lastBucketWithHeadBelow(key, false);
+        return (nullsFirst ? nullCount : 0) + (bucket < 0 ? 0 : prefix(bucket) + bound(bucket, key, false));
+    }
+
+    @Override
+    public int upperBound(String key) {
+        if (key == null) {
+            return placesNullFirst() ? nullCount : size();
+        }
+        int bucket = lastBucketWithHeadBelow(key, true);
+        return (nullsFirst ? nullCount : 0) + (bucket < 0 ? 0 : prefix(bucket) + bound(bucket, key, true));
+    }
+
+    @Override
+    public void clear() {
+        buckets = new byte[4][];
+        heads = new String[4];
+        counts = new int[4];
+        tree = new int[5];
+        bucketCount = 0;
+        valueCount = 0;
+        nullCount = 0;
+        modCount++;
+    }
+
+    /**
+     * Removes the non-null strings from {@code fromValue}, inclusive, to {@code toValue}, exclusive.
+     */
+    private void removeValues(int fromValue, int toValue) {
+        if (fromValue == toValue) {
+            return;
+        }
+        int firstBucket = locate(fromValue);
+        // strings kept before the range in the first bucket and after it in the last bucket
+        int head = locatedOffset;
+        int lastBucket = locate(toValue - 1);
+        int tail = counts[lastBucket] - locatedOffset - 1;
+        int removedFrom = head > 0 ? firstBucket + 1 : firstBucket;
+        int removedTo = tail > 0 ? lastBucket : lastBucket + 1;
+        if (firstBucket == lastBucket) {
+            if (head + tail > 0) {
+                decode(firstBucket);
+                System.arraycopy(decoded, counts[firstBucket] - tail, decoded, head, tail);
+                encode(firstBucket, decoded, 0, head + tail);
+                removedFrom = removedTo;
+            }
+        } else {
+            if (tail > 0) {
+                decode(lastBucket);
+                encode(lastBucket, decoded, counts[lastBucket] - tail, tail);
+            }
+            if (head > 0) {
+                decode(firstBucket);
+                encode(firstBucket, decoded, 0, head);
+            }
+        }
+        removeBuckets(removedFrom, removedTo);
+        valueCount -= toValue - fromValue;
+        modCount++;
+        rebuildTree();
+        int seam = Math.min(firstBucket, bucketCount - 1);
+        if (seam >= 0 && counts[seam] < bucketCapacity / 4) {
+            merge(seam);
+        }
+    }
+
+    private void addNull() {
+        if (nullCount == 0) {
+            nullsFirst = placesNullFirst();
+        }
+        nullCount++;
+        modCount++;
+    }
+
+    private boolean placesNullFirst() {
+        // an empty string is the smallest non-null string for any reasonable comparator
+        return comparator.compare(null, "") < 0;
+    }
+
+    /**
+     * Returns the index among the non-null strings of the element at the specified index, or -1 if the element is null.
+     */
+    private int valueIndex(int index) {
+        int value = nullsFirst ? index - nullCount : index;
+        return value < 0 || value >= valueCount ? -1 : value;
+    }
+
+    /**
+     * Inserts the string into the specified bucket at the specified offset, splitting the bucket if it overflows.
+     */
+    private void insertInto(int bucket, int offset, String element) {
+        decode(bucket);
+        int count = counts[bucket];
+        System.arraycopy(decoded, offset, decoded, offset + 1, count - offset);
+        decoded[offset] = element;
+        count++;
+        if (count > bucketCapacity) {
+            int half = count / 2;
+            encode(bucket, decoded, 0, half);
+            insertBucket(bucket + 1);
+            encode(bucket + 1, decoded, half, count - half);
+            rebuildTree();
+        } else {
+            encode(bucket, decoded, 0, count);
+            fenwickAdd(bucket, 1);
+        }
+        valueCount++;
+        modCount++;
+    }
+
+    /**
+     * Merges the underfilled bucket with its neighbour if they fit into three quarters of a bucket.
+     */
+    private void merge(int bucket) {
+        if (bucketCount == 1) {
+            return;
+        }
+        int left = bucket + 1 < bucketCount ? bucket : bucket - 1;
+        int right = left + 1;
+        int total = counts[left] + counts[right];
+        if (total <= bucketCapacity * 3 / 4) {
+            decodeInto(left, decoded, 0);
+            decodeInto(right, decoded, counts[left]);
+            encode(left, decoded, 0, total);
+            removeBuckets(right, right + 1);
+            rebuildTree();
+            modCount++;
+        }
+    }
+
+    /**
+     * Decodes the specified bucket into {@link #decoded} unless it is cached there.
+     */
+    private void decode(int bucket) {
+        if (decodedBucket != bucket || decodedModCount != modCount) {
+            decodeInto(bucket, decoded, 0);
+            decodedBucket = bucket;
+            decodedModCount = modCount;
+        }
+    }
+
+    private void decodeInto(int bucket, String[] target, int position) {
+        if (counts[bucket] == 0) {
+            return;
+        }
+        String previous = heads[bucket];
+        target[position] = previous;
+        byte[] bytes = buckets[bucket];
+        readPosition = 0;
+        for (int i = 1; i < counts[bucket]; i++) {
+            int shared = readVarint(bytes);
+            int suffix = readVarint(bytes);
+            char[] current = new char[shared + suffix];
+            previous.getChars(0, shared, current, 0);
+            for (int j = shared; j < current.length; j++) {
+                current[j] = (char) readVarint(bytes);
+            }
+            previous = new String(current);
+            target[position + i] = previous;
+        }
+    }
+
+    /**
+     * Encodes the specified strings into the specified bucket. The cached decoded bucket is invalidated.
+     */
+    private void encode(int bucket, String[] values, int from, int count) {
+        int length = 0;
+        String previous = values[from];
+        for (int i = from + 1; i < from + count; i++) {
+            String current = values[i];
+            int limit = Math.min(previous.length(), current.length());
+            int shared = 0;
+            while (shared < limit && previous.charAt(shared) == current.charAt(shared)) {
+                shared++;
+            }
+            int suffix = current.length() - shared;
+            ensureScratch(length + 10 + 3 * suffix);
+            length = writeVarint(shared, length);
+            length = writeVarint(suffix, length);
+            for (int j = shared; j < current.length(); j++) {
+                length = writeVarint(current.charAt(j), length);
+            }
+            previous = current;
+        }
+        buckets[bucket] = Arrays.copyOf(scratch, length);
+        heads[bucket] = values[from];
+        counts[bucket] = count;
+        decodedBucket = -1;
+    }
+
+    private void ensureScratch(int length) {
+        if (scratch.length < length) {
+            scratch = Arrays.copyOf(scratch, Math.max(length, scratch.length * 2));
+        }
+    }
+
+    private int writeVarint(int value, int position) {
+        while ((value & ~0x7F) != 0) {
+            scratch[position++] = (byte) (value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+        scratch[position++] = (byte) value;
+        return position;
+    }
+
+    private int readVarint(byte[] bytes) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = bytes[readPosition++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    private void insertBucket(int bucket) {
+        if (bucketCount == buckets.length) {
+            int newLength = buckets.length * 2;
+            buckets = Arrays.copyOf(buckets, newLength);
+            heads = Arrays.copyOf(heads, newLength);
+            counts = Arrays.copyOf(counts, newLength);
+        }
+        System.arraycopy(buckets, bucket, buckets, bucket + 1, bucketCount - bucket);
+        System.arraycopy(heads, bucket, heads, bucket + 1, bucketCount - bucket);
+        System.arraycopy(counts, bucket, counts, bucket + 1, bucketCount - bucket);
+        buckets[bucket] = new byte[0];
+        counts[bucket] = 0;
+        bucketCount++;
+    }
+
+    /**
+     * Removes the buckets from {@code from}, inclusive, to {@code to}, exclusive.
+     */
+    private void removeBuckets(int from, int to) {
+        System.arraycopy(buckets, to, buckets, from, bucketCount - to);
+        System.arraycopy(heads, to, heads, from, bucketCount - to);
+        System.arraycopy(counts, to, counts, from, bucketCount - to);
+        Arrays.fill(buckets, bucketCount - (to - from), bucketCount, null);
+        Arrays.fill(heads, bucketCount - (to - from), bucketCount, null);
+        Arrays.fill(counts, bucketCount - (to - from), bucketCount, 0);
+        bucketCount -= to - from;
+        decodedBucket = -1;
+    }
+
+    /**
+     * Returns the last bucket whose head is less than (or equal to if {@code inclusive}) the key, or -1 if there is no such bucket.
+     */
+    private int lastBucketWithHeadBelow(String key, boolean inclusive) {
+        int bucket = FingerSearch.firstMatch(i -> {
+            int comparison = comparator.compare(heads[i], key);
+            return comparison > 0 || !inclusive && comparison == 0;
+        }, bucketCount, searchFinger + 1) - 1;
+        searchFinger = Math.max(bucket, 0);
+        return bucket;
+    }
+
+    /**
+     * Returns the offset of the first string of the bucket greater than (if {@code upper}) or not less than the key.
+     */
+    private int bound(int bucket, String key, boolean upper) {
+        decode(bucket);
+        int low = 0;
+        int high = counts[bucket];
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int comparison = comparator.compare(decoded[middle], key);
+            if (comparison < 0 || upper && comparison == 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private void rebuildTree() {
+        if (tree.length <= bucketCount) {
+            tree = new int[buckets.length + 1];
+        } else {
+            Arrays.fill(tree, 0);
+        }
+        for (int i = 1; i <= bucketCount; i++) {
+            tree[i] += counts[i - 1];
+            int parent = i + (i & -i);
+            if (parent <= bucketCount) {
+                tree[parent] += tree[i];
+            }
+        }
+    }
+
+    private void fenwickAdd(int bucket, int delta) {
+        for (int i = bucket + 1; i <= bucketCount; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /**
+     * Returns the number of strings in the buckets preceding the specified bucket.
+     */
+    private int prefix(int bucket) {
+        int sum = 0;
+        for (int i = bucket; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Returns the bucket containing the non-null string at the specified index and stores the offset of the string in {@link #locatedOffset}.
+     */
+    private int locate(int index) {
+        if (fingerModCount == modCount && index >= fingerStart && index < fingerStart + counts[fingerBucket]) {
+            locatedOffset = index - fingerStart;
+            return fingerBucket;
+        }
+        int position = 0;
+        int remaining = index;
+        for (int step = Integer.highestOneBit(bucketCount); step > 0; step >>= 1) {
+            if (position + step <= bucketCount && tree[position + step] <= remaining) {
+                position += step;
+                remaining -= tree[position];
+            }
+        }
+        locatedOffset = remaining;
+        fingerBucket = position;
+        fingerStart = index - remaining;
+        fingerModCount = modCount;
+        return position;
+    }
+}
@@ -0,0 +1,200 @@
+package io.github.vaclavrechtberger.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.function.Function;
+
+/**
+ * Storage keeping every element together with its sort key (Schwartzian transform).
+ * The key is computed once, when the element is inserted, and the searches of the underlying engine compare the cached keys
+ * instead of calling an expensive comparator (e.g., case folding or locale-aware collation) on both elements at every step;
+ * a search computes the key of the searched element once.
+ * The ordering of the keys must agree with the comparator of the list. Null elements get null keys and are compared by the comparator.
+ *
+ * @param <E> the type of elements held in this storage
+ */
+final class KeyCachingStorage<E> implements SortedStorage<E> {
+    private final Comparator<? super E> comparator;
+
+    private final Function<? super E, ? extends Comparable<?>> sortKey;
+
+    private final SortedStorage<Entry<E>> delegate;
+
+    /**
+     * Creates an empty storage.
+     *
+     * @param comparator the comparator of the elements, consistent with the ordering of the keys
+     * @param sortKey the function computing the sort key of a non-null element
+     * @param engine the engine to keep the elements with their keys in
+     */
+    KeyCachingStorage(Comparator<? super E> comparator, Function<? super E, ? extends Comparable<?>> sortKey, StorageEngine engine) {
+        this.comparator = comparator;
+        this.sortKey = sortKey;
+        this.delegate = engine.create(this::compare);
+    }
+
+    @Override
+    public Comparator<? super E> comparator() {
+        return comparator;
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    @Override
+    public E get(int index) {
+        return delegate.get(index).element;
+    }
+
+    @Override
+    public E first() {
+        return delegate.first().element;
+    }
+
+    @Override
+    public E last() {
+        return delegate.last().element;
+    }
+
+    @Override
+    public E set(int index, E element) {
+        return delegate.set(index, entry(element)).element;
+    }
+
+    @Override
+    public void add(int index, E element) {
+        delegate.add(index, entry(element));
+    }
+
+    @Override
+    public void addAll(int index, Collection<? extends E> elements) {
+        List<Entry<E>> entries = new ArrayList<>(elements.size());
+        for (E element : elements) {
+            entries.add(entry(element));
+        }
+        delegate.addAll(index, entries);
+    }
+
+    @Override
+    public int insert(E element) {
+        return delegate.insert(entry(element));
+    }
+
+    @Override
+    public E remove(int index) {
+        return delegate.remove(index).element;
+    }
+
+    @Override
+    public void removeRange(int fromIndex, int toIndex) {
+        delegate.removeRange(fromIndex, toIndex);
+    }
+
+    @Override
+    public int lowerBound(E key) {
+        return delegate.lowerBound(entry(key));
+    }
+
+    @Override
+    public int upperBound(E key) {
+        return delegate.upperBound(entry(key));
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+    }
+
+    @Override
+    public ListIterator<E> listIterator(int index) {
+        ListIterator<Entry<E>> cursor = delegate.listIterator(index);
+        return new ListIterator<>() {
+            @Override
+            public boolean hasNext() {
+                return cursor.hasNext();
+            }
+
+            @Override
+            public E next() {
+                return cursor.next().element;
+            }
+
+            @Override
+            public boolean hasPrevious() {
+                return cursor.hasPrevious();
+            }
+
+            @Override
+            public E previous() {
+                return cursor.previous().element;
+            }
+
+            @Override
+            public int nextIndex() {
+                return cursor.nextIndex();
+            }
+
+            @Override
+            public int previousIndex() {
+                return cursor.previousIndex();
+            }
+
+            @Override
+            public void remove() {
+                cursor.remove();
+            }
+
+            @Override
+            public void set(E e) {
+                cursor.set(entry(e));
+            }
+
+            @Override
+            public void add(E e) {
+                cursor.add(entry(e));
+            }
+        };
+    }
+
+    @Override
+    public StorageStatistics statistics() {
+        return delegate.statistics();
+    }
+
+    @Override
+    public Object[] toArray() {
+        Object[] result = delegate.toArray();
+        for (int i = 0; i < result.length; i++) {
+            result[i] = ((Entry<?>) result[i]).element;
+        }
+        return result;
+    }
+
+    private Entry<E> entry(E element) {
+        return new Entry<>(element, element == null ? null : sortKey.apply(element));
+    }
+
+    @SuppressWarnings("unchecked")
+    private int compare(Entry<E> a, Entry<E> b) {
+        if (a.key == null || b.key == null) {
+            return comparator.compare(a.element, b.element);
+        }
+        return ((Comparable<Object>) a.key).compareTo(b.key);
+    }
+
+    private static final class Entry<E> {
+        private final E element;
+
+        private final Comparable<?> key;
+
+        private Entry(E element, Comparable<?> key) {
+            this.element = element;
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package io.github.vaclavrechtberger.util;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * Codec of elements to fixed-width binary keys, used by the storages keeping their elements outside the Java heap.
+ * The codecs returned by the factory methods of this interface are order-preserving: comparing their encoded keys
+ * as unsigned bytes gives the natural ordering of the elements.
+ *
+ * @param <E> the type of encoded elements
+ */
+public interface KeyCodec<E> {
+
+    /**
+     * Returns the number of bytes of every encoded key.
+     *
+     * @return the width of encoded keys
+     */
+    int width();
+
+    /**
+     * Writes the key of the specified element to the buffer at the specified absolute offset.
+     *
+     * @param element the element to encode (never null)
+     * @param buffer the target buffer
+     * @param offset the absolute offset in the buffer
+     */
+    void encode(E element, ByteBuffer buffer, int offset);
+
+    /**
+     * Reads the element from the key at the specified absolute offset of the buffer.
+     *
+     * @param buffer the source buffer
+     * @param offset the absolute offset in the buffer
+     * @return the decoded element
+     */
+    E decode(ByteBuffer buffer, int offset);
+
+    /**
+     * Returns {@code true} if comparing the encoded keys as unsigned bytes gives the natural ordering of the elements.
+     * Storages may then search the raw keys without decoding them.
+     *
+     * @return {@code true} if the encoding is order-preserving
+     */
+    default boolean isOrderPreserving() {
+        return false;
+    }
+
+    /**
+     * Returns an order-preserving codec of {@link Integer} values (4 bytes).
+     *
+     * @return the codec of integers
+     */
+    static KeyCodec<Integer> integers() {
+        return new KeyCodec<>() {
+            @Override
+            public int width() {
+                return Integer.BYTES;
+            }
+
+            @Override
+            public void encode(Integer element, ByteBuffer buffer, int offset) {
+                buffer.putInt(offset, element ^ Integer.MIN_VALUE);
+            }
+
+            @Override
+            public Integer decode(ByteBuffer buffer, int offset) {
+                return buffer.getInt(offset) ^ Integer.MIN_VALUE;
+            }
+
+            @Override
+            public boolean isOrderPreserving() {
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Returns an order-preserving codec of {@link Long} values (8 bytes).
+     *
+     * @return the codec of longs
+     */
+    static KeyCodec<Long> longs() {
+        return new KeyCodec<>() {
+            @Override
+            public int width() {
+                return Long.BYTES;
+            }
+
+            @Override
+            public void encode(Long element, ByteBuffer buffer, int offset) {
+                buffer.putLong(offset, element ^ Long.MIN_VALUE);
+            }
+
+            @Override
+            public Long decode(ByteBuffer buffer, int offset) {
+                return buffer.getLong(offset) ^ Long.MIN_VALUE;
+            }
+
+            @Override
+            public boolean isOrderPreserving() {
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Returns an order-preserving codec of {@link UUID} values (16 bytes), consistent with {@link UUID#compareTo(UUID)}.
+     *
+     * @return the codec of UUIDs
+     */
+    static KeyCodec<UUID> uuids() {
+        return new KeyCodec<>() {
+            @Override
+            public int width() {
+                return 2 * Long.BYTES;
+            }
+
+            @Override
+            public void encode(UUID element, ByteBuffer buffer, int offset) {
+                buffer.putLong(offset, element.getMostSignificantBits() ^ Long.MIN_VALUE);
+                buffer.putLong(offset + Long.BYTES, element.getLeastSignificantBits() ^ Long.MIN_VALUE);
+            }
+
+            @Override
+            public UUID decode(ByteBuffer buffer, int offset) {
+                return new UUID(buffer.getLong(offset) ^ Long.MIN_VALUE, buffer.getLong(offset + Long.BYTES) ^ Long.MIN_VALUE);
+            }
+
+            @Override
+            public boolean isOrderPreserving() {
+                return true;
+            }
+        };
+    }
+}
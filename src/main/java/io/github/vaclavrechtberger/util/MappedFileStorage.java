@@ -0,0 +1,514 @@
+package io.github.vaclavrechtberger.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * Persistent storage keeping the elements as sorted fixed-width keys in a memory-mapped file.
+ * Opening an existing file only maps it, so it takes constant time, and the pages are shared with other processes through the page cache.
+ * Reads ({@code get}, searches and iteration) decode the keys directly from the mapped pages.
+ * <p>
+ * The file is never modified in place. Inserted elements are kept in an in-heap delta and removed ones are marked by tombstones;
+ * once the delta grows over a fraction of the file, or on {@link #flush()}, the merged content is written as a new generation of the file,
+ * which atomically replaces the previous one. Changes not flushed before the process ends are lost.
+ * Removing a range removes its part of the delta at once and marks its part of the file by tombstones, checking for a merge only once.
+ * <p>
+ * Positional insertions place the element by its key, so elements equal according to the comparator are assumed to be interchangeable.
+ * Null elements are not supported. This class is not thread-safe.
+ * Usage:
+ * <pre>{@code
+ * try (MappedFileStorage<Long> storage = MappedFileStorage.open(path, Comparator.naturalOrder(), KeyCodec.longs())) {
+ *     SortedLinkedList<Long> list = new SortedLinkedList<>(storage);
+ *     ...
+ * }
+ * }</pre>
+ *
+ * @param <E> the type of elements held in this storage
+ */
+public final class MappedFileStorage<E> extends AbstractSortedStorage<E> implements Closeable {
+    private static final int MAGIC = 0x534C4C31;
+
+    private static final int HEADER_SIZE = 32;
+
+    private static final int SEGMENT_SIZE = 1 << 30;
+
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+    private static final int DEFAULT_MINIMAL_DELTA = 1 << 12;
+
+    private final Path file;
+
+    private final KeyCodec<E> codec;
+
+    private final int width;
+
+    private final int elementsPerSegment;
+
+    /**
+     * Minimal number of pending changes (inserted elements and tombstones) which triggers a merge.
+     */
+    private final int minimalDelta;
+
+    private final SortedStorage<E> delta;
+
+    /**
+     * Sorted indexes of the removed elements of the file.
+     */
+    private final SortedStorage<Integer> tombstones = StorageEngine.TREE.create(Comparator.<Integer>naturalOrder());
+
+    private FileChannel channel;
+
+    private MappedByteBuffer[] segments;
+
+    private int baseSize;
+
+    private long generation;
+
+    private boolean dirty;
+
+    /**
+     * Whether the element found by the last call of {@link #locate(int)} is held in the delta.
+     */
+    private boolean locatedInDelta;
+
+    private MappedFileStorage(Path file, Comparator<? super E> comparator, KeyCodec<E> codec, int minimalDelta) {
+        super(comparator);
+        this.file = file;
+        this.codec = codec;
+        this.width = codec.width();
+        this.elementsPerSegment = SEGMENT_SIZE / width;
+        this.minimalDelta = minimalDelta;
+        this.delta = StorageEngine.TREE.create(comparator);
+    }
+
+    /**
+     * Opens the storage kept in the specified file, creating an empty one if the file does not exist.
+     *
+     * @param file the file of the storage
+     * @param comparator the comparator to determine the ordering of elements; it must be the one the file has been written with
+     * @param codec the codec of the elements; it must be the one the file has been written with
+     * @return the opened storage
+     * @param <E> the type of elements held in the storage
+     * @throws IOException if the file cannot be read or created, or if it is not a storage file of keys of the width of the codec
+     */
+    public static <E> MappedFileStorage<E> open(Path file, Comparator<? super E> comparator, KeyCodec<E> codec) throws IOException {
+        return open(file, comparator, codec, DEFAULT_MINIMAL_DELTA);
+    }
+
+    static <E> MappedFileStorage<E> open(Path file, Comparator<? super E> comparator, KeyCodec<E> codec, int minimalDelta) throws IOException {
+        MappedFileStorage<E> storage = new MappedFileStorage<>(Objects.requireNonNull(file), Objects.requireNonNull(comparator), Objects.requireNonNull(codec), minimalDelta);
+        if (Files.exists(file)) {
+            storage.map();
+        } else {
+            storage.writeGeneration(storage.iterator(), 0);
+        }
+        return storage;
+    }
+
+    /**
+     * Returns the generation of the file, which is incremented by every merge.
+     *
+     * @return the generation of the file
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Writes the pending changes to a new generation of the file. Does nothing if there are no pending changes.
+     *
+     * @throws IOException if the new generation cannot be written
+     */
+    public void flush() throws IOException {
+        if (dirty) {
+            writeGeneration(iterator(), size());
+        }
+    }
+
+    /**
+     * Flushes the pending changes and closes the file. The mapped pages are released once this storage is garbage collected.
+     *
+     * @throws IOException if the pending changes cannot be written or the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    @Override
+    public int size() {
+        return baseSize - tombstones.size() + delta.size();
+    }
+
+    @Override
+    public E get(int index) {
+        checkIndex(index);
+        int located = locate(index);
+        return locatedInDelta ? delta.get(located) : key(located);
+    }
+
+    @Override
+    public E set(int index, E element) {
+        checkIndex(index);
+        int located = locate(index);
+        if (locatedInDelta) {
+            return delta.set(located, element);
+        }
+        // read before the modification, which may write and map a new generation
+        E previous = key(located);
+        tombstones.insert(located);
+        delta.insert(element);
+        modified();
+        return previous;
+    }
+
+    @Override
+    public void add(int index, E element) {
+        checkPositionIndex(index);
+        insert(element);
+    }
+
+    @Override
+    public void addAll(int index, Collection<? extends E> elements) {
+        checkPositionIndex(index);
+        if (!isEmpty()) {
+            super.addAll(index, elements);
+            return;
+        }
+        try {
+            writeGeneration(elements.iterator(), elements.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        modCount++;
+    }
+
+    @Override
+    public int insert(E element) {
+        int index = upperBound(element);
+        delta.insert(element);
+        modified();
+        return index;
+    }
+
+    @Override
+    public E remove(int index) {
+        checkIndex(index);
+        int located = locate(index);
+        E removed;
+        if (locatedInDelta) {
+            removed = delta.remove(located);
+        } else {
+            removed = key(located);
+            tombstones.insert(located);
+        }
+        modified();
+        return removed;
+    }
+
+    @Override
+    public void removeRange(int fromIndex, int toIndex) {
+        checkRange(fromIndex, toIndex);
+        if (fromIndex == toIndex) {
+            return;
+        }
+        int deltaFrom = deltaBefore(fromIndex);
+        int deltaTo = deltaBefore(toIndex);
+        // live elements of the file in the range, by rank
+        int rankFrom = fromIndex - deltaFrom;
+        int rankTo = toIndex - deltaTo;
+        if (rankFrom < rankTo) {
+            int first = select(rankFrom);
+            int last = select(rankTo - 1);
+            List<Integer> removed = new ArrayList<>(rankTo - rankFrom);
+            Iterator<Integer> existing = tombstones.listIterator(tombstones.lowerBound(first));
+            int nextExisting = existing.hasNext() ? existing.next() : Integer.MAX_VALUE;
+            for (int i = first; i <= last; i++) {
+                if (i == nextExisting) {
+                    nextExisting = existing.hasNext() ? existing.next() : Integer.MAX_VALUE;
+                } else {
+                    removed.add(i);
+                }
+            }
+            for (Integer i : removed) {
+                tombstones.insert(i);
+            }
+        }
+        delta.removeRange(deltaFrom, deltaTo);
+        modified();
+    }
+
+    @Override
+    public int lowerBound(E key) {
+        return live(baseBound(key, false)) + delta.lowerBound(key);
+    }
+
+    @Override
+    public int upperBound(E key) {
+        return live(baseBound(key, true)) + delta.upperBound(key);
+    }
+
+    @Override
+    public void clear() {
+        segments = new MappedByteBuffer[0];
+        baseSize = 0;
+        delta.clear();
+        tombstones.clear();
+        dirty = true;
+        modCount++;
+    }
+
+    private void modified() {
+        dirty = true;
+        modCount++;
+        if (delta.size() + tombstones.size() > Math.max(minimalDelta, baseSize >>> 4)) {
+            try {
+                flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Returns the index of the element at the specified position either in the delta or in the file (see {@link #locatedInDelta}).
+     * Elements of the delta follow the elements of the file which are equal to them.
+     */
+    private int locate(int index) {
+        if (delta.isEmpty() && tombstones.isEmpty()) {
+            locatedInDelta = false;
+            return index;
+        }
+        // the first element of the delta at or after the position
+        int first = deltaBefore(index);
+        if (first < delta.size() && deltaPosition(first) == index) {
+            locatedInDelta = true;
+            return first;
+        }
+        locatedInDelta = false;
+        return select(index - first);
+    }
+
+    /**
+     * Returns the number of elements of the delta before the specified position.
+     */
+    private int deltaBefore(int index) {
+        int low = 0;
+        int high = delta.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (deltaPosition(middle) < index) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the position of the element of the delta at the specified index.
+     */
+    private int deltaPosition(int index) {
+        return index + live(baseBound(delta.get(index), true));
+    }
+
+    /**
+     * Returns the number of live (not removed) elements of the file before the specified index.
+     */
+    private int live(int index) {
+        return tombstones.isEmpty() ? index : index - tombstones.lowerBound(index);
+    }
+
+    /**
+     * Returns the index in the file of the live element of the specified rank.
+     */
+    private int select(int rank) {
+        int low = rank;
+        int high = rank + tombstones.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (live(middle + 1) <= rank) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the index of the first key of the file greater than (if {@code upper}) or not less than the specified key, regardless of tombstones.
+     */
+    private int baseBound(E key, boolean upper) {
+        int low = 0;
+        int high = baseSize;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int comparison = comparator.compare(key(middle), key);
+            if (comparison < 0 || upper && comparison == 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private E key(int index) {
+        return codec.decode(segments[index / elementsPerSegment], index % elementsPerSegment * width);
+    }
+
+    /**
+     * Writes the specified sorted elements to a new generation of the file, replaces the file by it and maps it.
+     */
+    private void writeGeneration(Iterator<? extends E> elements, int count) throws IOException {
+        Path next = file.resolveSibling(file.getFileName() + ".next");
+        try (FileChannel out = FileChannel.open(next, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(Math.max(HEADER_SIZE, WRITE_BUFFER_SIZE / width * width));
+            buffer.putInt(MAGIC).putInt(width).putLong(count).putLong(generation + 1).position(HEADER_SIZE);
+            int written = 0;
+            while (elements.hasNext()) {
+                if (buffer.remaining() < width) {
+                    write(out, buffer);
+                }
+                codec.encode(elements.next(), buffer, buffer.position());
+                buffer.position(buffer.position() + width);
+                written++;
+            }
+            if (written != count) {
+                throw new IllegalStateException("Expected " + count + " elements, got " + written + ".");
+            }
+            write(out, buffer);
+            out.force(true);
+        }
+        try {
+            Files.move(next, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(next, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        if (channel != null) {
+            channel.close();
+        }
+        map();
+    }
+
+    private static void write(FileChannel out, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Opens and maps the current generation of the file and discards the pending changes.
+     */
+    private void map() throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (header.hasRemaining() && channel.read(header) >= 0) {
+            // reads the whole header
+        }
+        header.flip();
+        if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC || header.getInt() != width) {
+            channel.close();
+            throw new IOException("Not a storage file of " + width + "-byte keys: " + file);
+        }
+        long count = header.getLong();
+        if (count > Integer.MAX_VALUE || channel.size() < HEADER_SIZE + count * width) {
+            channel.close();
+            throw new IOException("Corrupted storage file: " + file);
+        }
+        generation = header.getLong();
+        baseSize = (int) count;
+        segments = new MappedByteBuffer[(baseSize + elementsPerSegment - 1) / elementsPerSegment];
+        for (int i = 0; i < segments.length; i++) {
+            long first = (long) i * elementsPerSegment;
+            long length = Math.min(elementsPerSegment, baseSize - first) * width;
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + first * width, length);
+        }
+        delta.clear();
+        tombstones.clear();
+        dirty = false;
+    }
+
+    /**
+     * Iterator walking the live elements of the file and the delta in one pass, used to write a new generation.
+     */
+    @Override
+    public Iterator<E> iterator() {
+        return new MergingIterator();
+    }
+
+    private final class MergingIterator implements Iterator<E> {
+        private final Iterator<Integer> removed = tombstones.iterator();
+
+        private final Iterator<E> added = delta.iterator();
+
+        private int nextRemoved = removed.hasNext() ? removed.next() : -1;
+
+        private int base;
+
+        private E nextAdded = added.hasNext() ? added.next() : null;
+
+        private boolean hasAdded = nextAdded != null;
+
+        private final int expectedModCount = modCount;
+
+        @Override
+        public boolean hasNext() {
+            skipRemoved();
+            return base < baseSize || hasAdded;
+        }
+
+        @Override
+        public E next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            if (base < baseSize) {
+                E key = key(base);
+                if (!hasAdded || comparator.compare(key, nextAdded) <= 0) {
+                    base++;
+                    return key;
+                }
+            }
+            E element = nextAdded;
+            hasAdded = added.hasNext();
+            nextAdded = hasAdded ? added.next() : null;
+            return element;
+        }
+
+        private void skipRemoved() {
+            while (base == nextRemoved) {
+                base++;
+                nextRemoved = removed.hasNext() ? removed.next() : -1;
+            }
+        }
+    }
+}
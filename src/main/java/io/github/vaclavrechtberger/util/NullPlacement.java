@@ -0,0 +1,19 @@
+package io.github.vaclavrechtberger.util;
+
+/**
+ * Placement of null values in a sorted list which keeps them apart from the other values.
+ */
+public enum NullPlacement {
+    /**
+     * Null values are not permitted; adding one throws {@link NullPointerException}.
+     */
+    NOT_PERMITTED,
+    /**
+     * Null values are placed at the beginning of the list.
+     */
+    FIRST,
+    /**
+     * Null values are placed at the end of the list.
+     */
+    LAST
+}
@@ -0,0 +1,335 @@
+package io.github.vaclavrechtberger.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Storage which keeps null elements as a counter at the head or at the tail, in front of another storage holding the non-null elements.
+ * The other storage orders its elements by a comparator which does not handle null values, so no comparison made by its searches
+ * pays the null check of {@link Comparator#nullsFirst(Comparator)} or {@link Comparator#nullsLast(Comparator)}.
+ * Positional and key-based operations falling into the null region run in O(1).
+ * <p>
+ * Positional mutators place a null element into the null region and a non-null element into the other storage,
+ * so a null element inserted out of the null region ends up at its boundary.
+ *
+ * @param <E> the type of elements held in this storage
+ */
+final class NullSegregatingStorage<E> implements SortedStorage<E> {
+    private final SortedStorage<E> delegate;
+
+    private final Comparator<? super E> comparator;
+
+    private final boolean nullsFirst;
+
+    private int nullCount;
+
+    private int modCount;
+
+    /**
+     * Creates a storage placing the null elements before or after the elements of the specified storage.
+     *
+     * @param delegate the storage to keep the non-null elements in
+     * @param nullsFirst {@code true} to place the null elements at the head, {@code false} to place them at the tail
+     */
+    NullSegregatingStorage(SortedStorage<E> delegate, boolean nullsFirst) {
+        this.delegate = delegate;
+        this.nullsFirst = nullsFirst;
+        this.comparator = nullsFirst ? Comparator.nullsFirst(delegate.comparator()) : Comparator.nullsLast(delegate.comparator());
+    }
+
+    @Override
+    public Comparator<? super E> comparator() {
+        return comparator;
+    }
+
+    @Override
+    public int size() {
+        return nullCount + delegate.size();
+    }
+
+    @Override
+    public E get(int index) {
+        checkIndex(index);
+        return isNull(index) ? null : delegate.get(index - offset());
+    }
+
+    @Override
+    public E first() {
+        checkIndex(0);
+        return nullsFirst && nullCount > 0 || delegate.isEmpty() ? null : delegate.first();
+    }
+
+    @Override
+    public E last() {
+        checkIndex(0);
+        return !nullsFirst && nullCount > 0 || delegate.isEmpty() ? null : delegate.last();
+    }
+
+    @Override
+    public E set(int index, E element) {
+        E previous = get(index);
+        if (previous != null && element != null) {
+            delegate.set(index - offset(), element);
+        } else if (previous != null || element != null) {
+            remove(index);
+            add(index, element);
+        }
+        return previous;
+    }
+
+    @Override
+    public void add(int index, E element) {
+        checkPositionIndex(index);
+        if (element == null) {
+            nullCount++;
+            modCount++;
+        } else {
+            delegate.add(delegateIndex(index), element);
+        }
+    }
+
+    @Override
+    public void addAll(int index, Collection<? extends E> elements) {
+        checkPositionIndex(index);
+        List<E> nonNulls = new ArrayList<>(elements.size());
+        int nulls = 0;
+        for (E element : elements) {
+            if (element == null) {
+                nulls++;
+            } else {
+                nonNulls.add(element);
+            }
+        }
+        if (!nonNulls.isEmpty()) {
+            delegate.addAll(delegateIndex(index), nonNulls);
+        }
+        if (nulls > 0) {
+            nullCount += nulls;
+            modCount++;
+        }
+    }
+
+    @Override
+    public int insert(E element) {
+        if (element == null) {
+            nullCount++;
+            modCount++;
+            return nullsFirst ? nullCount - 1 : size() - 1;
+        }
+        int index = delegate.insert(element);
+        return index < 0 ? index : index + offset();
+    }
+
+    @Override
+    public E remove(int index) {
+        checkIndex(index);
+        if (isNull(index)) {
+            nullCount--;
+            modCount++;
+            return null;
+        }
+        return delegate.remove(index - offset());
+    }
+
+    @Override
+    public void removeRange(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > size() || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("fromIndex: " + fromIndex + ", toIndex: " + toIndex + ", Size: " + size());
+        }
+        int nullStart = nullsFirst ? 0 : delegate.size();
+        int nulls = Math.max(0, Math.min(toIndex, nullStart + nullCount) - Math.max(fromIndex, nullStart));
+        delegate.removeRange(delegateIndex(fromIndex), delegateIndex(toIndex));
+        if (nulls > 0) {
+            nullCount -= nulls;
+            modCount++;
+        }
+    }
+
+    @Override
+    public int lowerBound(E key) {
+        if (key == null) {
+            return nullsFirst ? 0 : delegate.size();
+        }
+        return delegate.lowerBound(key) + offset();
+    }
+
+    @Override
+    public int upperBound(E key) {
+        if (key == null) {
+            return nullsFirst ? nullCount : size();
+        }
+        return delegate.upperBound(key) + offset();
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+        nullCount = 0;
+        modCount++;
+    }
+
+    @Override
+    public ListIterator<E> listIterator(int index) {
+        checkPositionIndex(index);
+        return new Cursor(index);
+    }
+
+    @Override
+    public StorageStatistics statistics() {
+        return delegate.statistics();
+    }
+
+    /**
+     * Returns the number of null elements before the first non-null element.
+     */
+    private int offset() {
+        return nullsFirst ? nullCount : 0;
+    }
+
+    private boolean isNull(int index) {
+        return nullsFirst ? index < nullCount : index >= delegate.size();
+    }
+
+    /**
+     * Returns the index in the other storage at which a non-null element inserted at the specified position belongs.
+     */
+    private int delegateIndex(int index) {
+        return Math.min(Math.max(index - offset(), 0), delegate.size());
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+    }
+
+    private void checkPositionIndex(int index) {
+        if (index < 0 || index > size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+    }
+
+    /**
+     * List iterator which walks the null region by its index and the other storage by its cursor.
+     */
+    private final class Cursor implements ListIterator<E> {
+        private int nextIndex;
+
+        private int lastReturned = -1;
+
+        private ListIterator<E> cursor;
+
+        private int expectedModCount;
+
+        private Cursor(int index) {
+            seek(index);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextIndex < size();
+        }
+
+        @Override
+        public E next() {
+            checkForComodification();
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = nextIndex++;
+            return isNull(lastReturned) ? null : cursor.next();
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return nextIndex > 0;
+        }
+
+        @Override
+        public E previous() {
+            checkForComodification();
+            if (!hasPrevious()) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = --nextIndex;
+            return isNull(lastReturned) ? null : cursor.previous();
+        }
+
+        @Override
+        public int nextIndex() {
+            return nextIndex;
+        }
+
+        @Override
+        public int previousIndex() {
+            return nextIndex - 1;
+        }
+
+        @Override
+        public void remove() {
+            checkForComodification();
+            if (lastReturned < 0) {
+                throw new IllegalStateException();
+            }
+            if (isNull(lastReturned)) {
+                nullCount--;
+                modCount++;
+            } else {
+                cursor.remove();
+            }
+            if (lastReturned < nextIndex) {
+                nextIndex--;
+            }
+            lastReturned = -1;
+            expectedModCount = modCount;
+        }
+
+        @Override
+        public void set(E e) {
+            checkForComodification();
+            if (lastReturned < 0) {
+                throw new IllegalStateException();
+            }
+            boolean wasNull = isNull(lastReturned);
+            if (!wasNull && e != null) {
+                cursor.set(e);
+            } else if (!wasNull || e != null) {
+                NullSegregatingStorage.this.set(lastReturned, e);
+                seek(nextIndex);
+            }
+        }
+
+        @Override
+        public void add(E e) {
+            checkForComodification();
+            if (e == null) {
+                NullSegregatingStorage.this.add(nextIndex, null);
+                seek(nextIndex + 1);
+            } else {
+                cursor.add(e);
+                nextIndex++;
+            }
+            lastReturned = -1;
+        }
+
+        /**
+         * Moves this cursor to the specified position, the cursor of the other storage to the first non-null element not before it.
+         */
+        private void seek(int index) {
+            nextIndex = index;
+            cursor = delegate.listIterator(delegateIndex(index));
+            expectedModCount = modCount;
+        }
+
+        private void checkForComodification() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+}
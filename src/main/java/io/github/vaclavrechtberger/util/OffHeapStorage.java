@@ -0,0 +1,203 @@
+package io.github.vaclavrechtberger.util;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Comparator;
+
+/**
+ * Storage keeping fixed-width encoded keys in a direct (off-heap) buffer.
+ * The Java heap holds only this handle, so the garbage collector does not trace the elements and its pauses do not grow with the size of the list.
+ * The elements are decoded on every access, so the storage suits elements whose identity does not matter (e.g., numbers or UUIDs).
+ * <p>
+ * Searches are binary searches over the keys. If the codec is order-preserving and the list uses the natural ordering,
+ * the raw keys are compared without decoding; otherwise every probed key is decoded and compared by the comparator.
+ * Insertions and removals (including the removal of a whole range) move the tail of the buffer once. Null elements are not supported.
+ *
+ * @param <E> the type of elements held in this storage
+ */
+final class OffHeapStorage<E> extends AbstractSortedStorage<E> {
+    private static final int SCRATCH_SIZE = 1 << 16;
+
+    private static final ByteBuffer EMPTY = ByteBuffer.allocateDirect(0);
+
+    private final KeyCodec<E> codec;
+
+    private final int width;
+
+    private final boolean rawOrdering;
+
+    private final ByteBuffer probe;
+
+    private final byte[] scratch;
+
+    private ByteBuffer data = EMPTY;
+
+    private int size;
+
+    /**
+     * Creates an empty storage.
+     *
+     * @param comparator the comparator to determine the ordering of elements
+     * @param codec the codec of the elements
+     * @param rawOrdering whether the comparator is the natural ordering, so the raw keys of an order-preserving codec can be compared directly
+     */
+    OffHeapStorage(Comparator<? super E> comparator, KeyCodec<E> codec, boolean rawOrdering) {
+        super(comparator);
+        this.codec = codec;
+        this.width = codec.width();
+        this.rawOrdering = rawOrdering && codec.isOrderPreserving();
+        this.probe = ByteBuffer.allocate(width);
+        this.scratch = new byte[Math.max(width, SCRATCH_SIZE / width * width)];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public E get(int index) {
+        checkIndex(index);
+        return codec.decode(data, index * width);
+    }
+
+    @Override
+    public E set(int index, E element) {
+        checkIndex(index);
+        E previous = codec.decode(data, index * width);
+        codec.encode(element, data, index * width);
+        return previous;
+    }
+
+    @Override
+    public void add(int index, E element) {
+        checkPositionIndex(index);
+        ensureCapacity(size + 1);
+        move(index * width, (index + 1) * width, (size - index) * width);
+        codec.encode(element, data, index * width);
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public void addAll(int index, Collection<? extends E> elements) {
+        checkPositionIndex(index);
+        int count = elements.size();
+        ensureCapacity(size + count);
+        move(index * width, (index + count) * width, (size - index) * width);
+        int offset = index * width;
+        for (E element : elements) {
+            codec.encode(element, data, offset);
+            offset += width;
+        }
+        size += count;
+        modCount++;
+    }
+
+    @Override
+    public E remove(int index) {
+        checkIndex(index);
+        E removed = codec.decode(data, index * width);
+        move((index + 1) * width, index * width, (size - index - 1) * width);
+        size--;
+        modCount++;
+        return removed;
+    }
+
+    @Override
+    public void removeRange(int fromIndex, int toIndex) {
+        checkRange(fromIndex, toIndex);
+        move(toIndex * width, fromIndex * width, (size - toIndex) * width);
+        size -= toIndex - fromIndex;
+        modCount++;
+    }
+
+    @Override
+    public int lowerBound(E key) {
+        return search(key, false);
+    }
+
+    @Override
+    public int upperBound(E key) {
+        return search(key, true);
+    }
+
+    @Override
+    public void clear() {
+        data = EMPTY;
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * Returns the index of the first key greater than (if {@code upper}) or not less than the key of the specified element.
+     */
+    private int search(E key, boolean upper) {
+        if (rawOrdering) {
+            codec.encode(key, probe, 0);
+        }
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int comparison = rawOrdering ? compareRaw(middle * width) : comparator.compare(codec.decode(data, middle * width), key);
+            if (comparison < 0 || upper && comparison == 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Compares the key at the specified offset with the probe as unsigned bytes.
+     */
+    private int compareRaw(int offset) {
+        int i = 0;
+        for (; i + Long.BYTES <= width; i += Long.BYTES) {
+            int comparison = Long.compareUnsigned(data.getLong(offset + i), probe.getLong(i));
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        for (; i < width; i++) {
+            int comparison = Byte.compareUnsigned(data.get(offset + i), probe.get(i));
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return 0;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if ((long) capacity * width > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Off-heap storage cannot hold more than " + Integer.MAX_VALUE / width + " elements.");
+        }
+        if (capacity * width > data.capacity()) {
+            long newCapacity = Math.max(Math.max(16, capacity), (long) size + (size >> 1));
+            ByteBuffer grown = ByteBuffer.allocateDirect((int) Math.min(newCapacity * width, Integer.MAX_VALUE / width * width));
+            grown.put(data.duplicate().position(0).limit(size * width));
+            data = grown.clear();
+        }
+    }
+
+    /**
+     * Moves the bytes within the buffer through the scratch array; overlapping ranges are handled.
+     */
+    private void move(int from, int to, int length) {
+        if (from < to) {
+            for (int end = length; end > 0; end -= scratch.length) {
+                int chunk = Math.min(scratch.length, end);
+                data.get(from + end - chunk, scratch, 0, chunk);
+                data.put(to + end - chunk, scratch, 0, chunk);
+            }
+        } else {
+            for (int start = 0; start < length; start += scratch.length) {
+                int chunk = Math.min(scratch.length, length - start);
+                data.get(from + start, scratch, 0, chunk);
+                data.put(to + start, scratch, 0, chunk);
+            }
+        }
+    }
+}
@@ -0,0 +1,417 @@
+package io.github.vaclavrechtberger.util;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Objects;
+
+/**
+ * Run-length (multiset) storage.
+ * Elements equal according to the comparator are collapsed into one group, which keeps runs of instances equal according to
+ * {@link Object#equals(Object)} with their counts, so the order of distinct instances within the group is preserved.
+ * A Fenwick tree over the group sizes answers positional lookups, so adding or removing a duplicate of an existing key,
+ * {@code get} and searches run in O(log d), where d is the number of distinct keys; only adding a new key shifts the groups.
+ * Removing a range trims the groups at its ends and drops the groups between them at once.
+ * Memory scales with the number of distinct keys (and distinct instances) rather than with the number of elements.
+ * Positional insertions which would not keep the ordering (i.e., into a group of a different key) place the element by its key.
+ *
+ * @param <E> the type of elements held in this storage
+ */
+final class RunLengthStorage<E> extends AbstractSortedStorage<E> {
+    private Group[] groups = new Group[4];
+
+    /**
+     * Fenwick tree over the sizes of {@link #groups} (1-based).
+     */
+    private int[] tree = new int[5];
+
+    private int groupCount;
+
+    private int size;
+
+    /**
+     * Offset within the group found by the last call of {@link #locate(int)}.
+     */
+    private int locatedOffset;
+
+    RunLengthStorage(Comparator<? super E> comparator) {
+        super(comparator);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        checkIndex(index);
+        int group = locate(index);
+        return (E) groups[group].get(locatedOffset);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E first() {
+        checkIndex(0);
+        return (E) groups[0].instances[0];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E last() {
+        checkIndex(0);
+        Group group = groups[groupCount - 1];
+        return (E) group.instances[group.runs - 1];
+    }
+
+    @Override
+    public E set(int index, E element) {
+        E previous = remove(index);
+        add(index, element);
+        return previous;
+    }
+
+    @Override
+    public void add(int index, E element) {
+        checkPositionIndex(index);
+        if (index < size) {
+            int group = locate(index);
+            if (comparator.compare(key(group), element) == 0) {
+                addToGroup(group, locatedOffset, element);
+                return;
+            }
+            if (locatedOffset == 0 && group > 0 && comparator.compare(key(group - 1), element) == 0) {
+                addToGroup(group - 1, groups[group - 1].total, element);
+                return;
+            }
+        } else if (groupCount > 0 && comparator.compare(key(groupCount - 1), element) == 0) {
+            addToGroup(groupCount - 1, groups[groupCount - 1].total, element);
+            return;
+        }
+        insert(element);
+    }
+
+    @Override
+    public void addAll(int index, Collection<? extends E> elements) {
+        if (size != 0 || elements.isEmpty()) {
+            super.addAll(index, elements);
+            return;
+        }
+        for (E element : elements) {
+            if (groupCount > 0 && comparator.compare(key(groupCount - 1), element) == 0) {
+                Group group = groups[groupCount - 1];
+                group.add(group.total, element);
+            } else {
+                insertGroup(groupCount, new Group(element));
+            }
+        }
+        size = elements.size();
+        rebuildTree();
+        modCount++;
+    }
+
+    @Override
+    public int insert(E element) {
+        int group = groupBound(element, false);
+        if (group < groupCount && comparator.compare(key(group), element) == 0) {
+            int index = prefix(group) + groups[group].total;
+            addToGroup(group, groups[group].total, element);
+            return index;
+        }
+        insertGroup(group, new Group(element));
+        rebuildTree();
+        size++;
+        modCount++;
+        return prefix(group);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E remove(int index) {
+        checkIndex(index);
+        int group = locate(index);
+        E removed = (E) groups[group].remove(locatedOffset);
+        size--;
+        modCount++;
+        if (groups[group].total == 0) {
+            removeGroups(group, group + 1);
+            rebuildTree();
+        } else {
+            fenwickAdd(group, -1);
+        }
+        return removed;
+    }
+
+    @Override
+    public void removeRange(int fromIndex, int toIndex) {
+        checkRange(fromIndex, toIndex);
+        if (fromIndex == toIndex) {
+            return;
+        }
+        int firstGroup = locate(fromIndex);
+        int firstOffset = locatedOffset;
+        int lastGroup = locate(toIndex - 1);
+        if (firstGroup == lastGroup) {
+            groups[firstGroup].removeRange(firstOffset, locatedOffset + 1);
+        } else {
+            groups[firstGroup].removeRange(firstOffset, groups[firstGroup].total);
+            groups[lastGroup].removeRange(0, locatedOffset + 1);
+        }
+        int removedFrom = groups[firstGroup].total == 0 ? firstGroup : firstGroup + 1;
+        int removedTo = groups[lastGroup].total == 0 ? lastGroup + 1 : lastGroup;
+        if (removedFrom < removedTo) {
+            removeGroups(removedFrom, removedTo);
+        }
+        size -= toIndex - fromIndex;
+        rebuildTree();
+        modCount++;
+    }
+
+    @Override
+    public int lowerBound(E key) {
+        return prefix(groupBound(key, false));
+    }
+
+    @Override
+    public int upperBound(E key) {
+        return prefix(groupBound(key, true));
+    }
+
+    @Override
+    public void clear() {
+        groups = new Group[4];
+        tree = new int[5];
+        groupCount = 0;
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public Object[] toArray() {
+        Object[] result = new Object[size];
+        int position = 0;
+        for (int g = 0; g < groupCount; g++) {
+            Group group = groups[g];
+            for (int r = 0; r < group.runs; r++) {
+                Arrays.fill(result, position, position + group.counts[r], group.instances[r]);
+                position += group.counts[r];
+            }
+        }
+        return result;
+    }
+
+    private void addToGroup(int group, int offset, E element) {
+        groups[group].add(offset, element);
+        fenwickAdd(group, 1);
+        size++;
+        modCount++;
+    }
+
+    @SuppressWarnings("unchecked")
+    private E key(int group) {
+        return (E) groups[group].instances[0];
+    }
+
+    /**
+     * Returns the index of the first group whose key is greater than (if {@code upper}) or not less than the specified key.
+     */
+    private int groupBound(E key, boolean upper) {
+        int low = 0;
+        int high = groupCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int comparison = comparator.compare(key(middle), key);
+            if (comparison < 0 || upper && comparison == 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private void insertGroup(int group, Group inserted) {
+        if (groupCount == groups.length) {
+            groups = Arrays.copyOf(groups, groups.length * 2);
+        }
+        System.arraycopy(groups, group, groups, group + 1, groupCount - group);
+        groups[group] = inserted;
+        groupCount++;
+    }
+
+    /**
+     * Removes the groups from {@code from}, inclusive, to {@code to}, exclusive.
+     */
+    private void removeGroups(int from, int to) {
+        System.arraycopy(groups, to, groups, from, groupCount - to);
+        Arrays.fill(groups, groupCount - (to - from), groupCount, null);
+        groupCount -= to - from;
+    }
+
+    private void rebuildTree() {
+        if (tree.length <= groupCount) {
+            tree = new int[groups.length + 1];
+        } else {
+            Arrays.fill(tree, 0);
+        }
+        for (int i = 1; i <= groupCount; i++) {
+            tree[i] += groups[i - 1].total;
+            int parent = i + (i & -i);
+            if (parent <= groupCount) {
+                tree[parent] += tree[i];
+            }
+        }
+    }
+
+    private void fenwickAdd(int group, int delta) {
+        for (int i = group + 1; i <= groupCount; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /**
+     * Returns the number of elements in the groups preceding the specified group.
+     */
+    private int prefix(int group) {
+        int sum = 0;
+        for (int i = group; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Returns the group containing the element at the specified index and stores the offset of the element in {@link #locatedOffset}.
+     */
+    private int locate(int index) {
+        int position = 0;
+        int remaining = index;
+        for (int step = Integer.highestOneBit(groupCount); step > 0; step >>= 1) {
+            if (position + step <= groupCount && tree[position + step] <= remaining) {
+                position += step;
+                remaining -= tree[position];
+            }
+        }
+        locatedOffset = remaining;
+        return position;
+    }
+
+    /**
+     * Elements equal according to the comparator, kept as runs of instances equal according to {@link Object#equals(Object)}.
+     */
+    private static final class Group {
+        private Object[] instances = new Object[1];
+
+        private int[] counts = new int[1];
+
+        private int runs;
+
+        private int total;
+
+        private Group(Object instance) {
+            instances[0] = instance;
+            counts[0] = 1;
+            runs = 1;
+            total = 1;
+        }
+
+        private Object get(int offset) {
+            int run = 0;
+            while (offset >= counts[run]) {
+                offset -= counts[run++];
+            }
+            return instances[run];
+        }
+
+        /**
+         * Inserts the instance at the specified offset, extending a neighbouring run of equal instances if there is one.
+         */
+        private void add(int offset, Object instance) {
+            int run = 0;
+            int start = 0;
+            while (run < runs && start + counts[run] <= offset) {
+                start += counts[run++];
+            }
+            total++;
+            if (offset > start) {
+                // strictly inside the run
+                if (Objects.equals(instances[run], instance)) {
+                    counts[run]++;
+                    return;
+                }
+                int leftCount = offset - start;
+                insertRun(run + 1, instance, 1);
+                insertRun(run + 2, instances[run], counts[run] - leftCount);
+                counts[run] = leftCount;
+            } else if (run > 0 && Objects.equals(instances[run - 1], instance)) {
+                counts[run - 1]++;
+            } else if (run < runs && Objects.equals(instances[run], instance)) {
+                counts[run]++;
+            } else {
+                insertRun(run, instance, 1);
+            }
+        }
+
+        private Object remove(int offset) {
+            int run = 0;
+            while (offset >= counts[run]) {
+                offset -= counts[run++];
+            }
+            Object removed = instances[run];
+            total--;
+            if (--counts[run] == 0) {
+                removeRun(run);
+                if (run > 0 && run < runs && Objects.equals(instances[run - 1], instances[run])) {
+                    counts[run - 1] += counts[run];
+                    removeRun(run);
+                }
+            }
+            return removed;
+        }
+
+        /**
+         * Removes the instances from offset {@code from}, inclusive, to {@code to}, exclusive, joining the runs around them if they are equal.
+         */
+        private void removeRange(int from, int to) {
+            int kept = 0;
+            int start = 0;
+            for (int run = 0; run < runs; run++) {
+                int end = start + counts[run];
+                int count = counts[run] - Math.max(0, Math.min(end, to) - Math.max(start, from));
+                start = end;
+                if (count == 0) {
+                    continue;
+                }
+                if (kept > 0 && Objects.equals(instances[kept - 1], instances[run])) {
+                    counts[kept - 1] += count;
+                } else {
+                    instances[kept] = instances[run];
+                    counts[kept++] = count;
+                }
+            }
+            Arrays.fill(instances, kept, runs, null);
+            runs = kept;
+            total -= to - from;
+        }
+
+        private void insertRun(int run, Object instance, int count) {
+            if (runs == instances.length) {
+                instances = Arrays.copyOf(instances, runs * 2);
+                counts = Arrays.copyOf(counts, runs * 2);
+            }
+            System.arraycopy(instances, run, instances, run + 1, runs - run);
+            System.arraycopy(counts, run, counts, run + 1, runs - run);
+            instances[run] = instance;
+            counts[run] = count;
+            runs++;
+        }
+
+        private void removeRun(int run) {
+            System.arraycopy(instances, run + 1, instances, run, runs - run - 1);
+            System.arraycopy(counts, run + 1, counts, run, runs - run - 1);
+            instances[--runs] = null;
+        }
+    }
+}
@@ -0,0 +1,526 @@
+package io.github.vaclavrechtberger.util;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Indexable skip list.
+ * Every forward link stores its span (i.e., the number of level-0 steps it skips),
+ * so both key-based and positional operations run in expected O(log n).
+ * The level-0 links are doubly linked to allow backward iteration.
+ * Adding elements to an empty skip list builds it bottom-up in O(n) (see {@link #addAll(int, Collection)}).
+ * The node found by the last positional lookup is remembered (finger), so a lookup close to the previous one
+ * (e.g., sequential calls of {@link #get(int)} or {@link #listIterator(int)}) just follows the level-0 links.
+ *
+ * @param <E> the type of elements held in this storage
+ */
+final class SkipListStorage<E> implements SortedStorage<E> {
+    private static final int MAX_LEVEL = 32;
+
+    /**
+     * Maximal distance from the finger which is walked instead of searching from the head.
+     */
+    private static final int FINGER_DISTANCE = 32;
+
+    private final Comparator<? super E> comparator;
+
+    private final Node<E> head = new Node<>(null, MAX_LEVEL);
+
+    private Node<E> tail;
+
+    private int level = 1;
+
+    private int size;
+
+    private int modCount;
+
+    /**
+     * Node found by the last positional lookup and its index, valid while {@link #modCount} equals {@link #fingerModCount}.
+     */
+    private Node<E> fingerNode;
+
+    private int fingerIndex;
+
+    private int fingerModCount = -1;
+
+    SkipListStorage(Comparator<? super E> comparator) {
+        this.comparator = comparator;
+    }
+
+    @Override
+    public Comparator<? super E> comparator() {
+        return comparator;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public E get(int index) {
+        return node(index).element;
+    }
+
+    @Override
+    public E first() {
+        checkIndex(0);
+        return head.next[0].element;
+    }
+
+    @Override
+    public E last() {
+        checkIndex(0);
+        return tail.element;
+    }
+
+    @Override
+    public E set(int index, E element) {
+        Node<E> node = node(index);
+        E previous = node.element;
+        node.element = element;
+        return previous;
+    }
+
+    @Override
+    public void add(int index, E element) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        Node<E>[] update = Node.newArray(MAX_LEVEL);
+        int[] rank = new int[MAX_LEVEL];
+        Node<E> x = head;
+        int traversed = 0;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && traversed + x.span[i] <= index) {
+                traversed += x.span[i];
+                x = x.next[i];
+            }
+            update[i] = x;
+            rank[i] = traversed;
+        }
+        link(update, rank, element);
+    }
+
+    /**
+     * Inserts the specified elements. If this skip list is empty, it is built bottom-up in one pass:
+     * every node is appended after the last node of each of its levels, so the build takes O(n) instead of O(n log n).
+     */
+    @Override
+    public void addAll(int index, Collection<? extends E> elements) {
+        if (size != 0 || index != 0) {
+            SortedStorage.super.addAll(index, elements);
+            return;
+        }
+        Node<E>[] last = Node.newArray(MAX_LEVEL);
+        int[] lastRank = new int[MAX_LEVEL];
+        Arrays.fill(last, head);
+        Node<E> previous = null;
+        int rank = 0;
+        for (E element : elements) {
+            rank++;
+            int nodeLevel = randomLevel();
+            Node<E> node = new Node<>(element, nodeLevel);
+            for (int i = 0; i < nodeLevel; i++) {
+                last[i].next[i] = node;
+                last[i].span[i] = rank - lastRank[i];
+                last[i] = node;
+                lastRank[i] = rank;
+            }
+            node.previous = previous;
+            previous = node;
+            level = Math.max(level, nodeLevel);
+        }
+        for (int i = 0; i < level; i++) {
+            last[i].span[i] = rank - lastRank[i];
+        }
+        tail = previous;
+        size = rank;
+        modCount++;
+    }
+
+    @Override
+    public int insert(E element) {
+        Node<E>[] update = Node.newArray(MAX_LEVEL);
+        int[] rank = new int[MAX_LEVEL];
+        Node<E> x = head;
+        int traversed = 0;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && comparator.compare(x.next[i].element, element) <= 0) {
+                traversed += x.span[i];
+                x = x.next[i];
+            }
+            update[i] = x;
+            rank[i] = traversed;
+        }
+        link(update, rank, element);
+        return traversed;
+    }
+
+    @Override
+    public E remove(int index) {
+        checkIndex(index);
+        Node<E>[] update = Node.newArray(MAX_LEVEL);
+        Node<E> x = head;
+        int traversed = 0;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && traversed + x.span[i] <= index) {
+                traversed += x.span[i];
+                x = x.next[i];
+            }
+            update[i] = x;
+        }
+        Node<E> removed = x.next[0];
+        unlink(update, removed);
+        return removed.element;
+    }
+
+    /**
+     * Unlinks the whole block at once: the predecessors of both ends are found by two searches and linked past the block,
+     * so the removal takes expected O(log n) regardless of the length of the block.
+     */
+    @Override
+    public void removeRange(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > size || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("fromIndex: " + fromIndex + ", toIndex: " + toIndex + ", Size: " + size);
+        }
+        if (fromIndex == toIndex) {
+            return;
+        }
+        Node<E>[] before = Node.newArray(MAX_LEVEL);
+        int[] beforeRank = new int[MAX_LEVEL];
+        Node<E>[] last = Node.newArray(MAX_LEVEL);
+        int[] lastRank = new int[MAX_LEVEL];
+        Node<E> x = head;
+        int traversed = 0;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && traversed + x.span[i] <= fromIndex) {
+                traversed += x.span[i];
+                x = x.next[i];
+            }
+            before[i] = x;
+            beforeRank[i] = traversed;
+        }
+        x = head;
+        traversed = 0;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && traversed + x.span[i] <= toIndex) {
+                traversed += x.span[i];
+                x = x.next[i];
+            }
+            last[i] = x;
+            lastRank[i] = traversed;
+        }
+        int removed = toIndex - fromIndex;
+        for (int i = 0; i < level; i++) {
+            if (last[i] != before[i]) {
+                // the last node of the block reached at this level is removed, so the link skips to its successor
+                before[i].span[i] = lastRank[i] + last[i].span[i] - beforeRank[i];
+                before[i].next[i] = last[i].next[i];
+            }
+            before[i].span[i] -= removed;
+        }
+        Node<E> next = before[0].next[0];
+        Node<E> previous = before[0] == head ? null : before[0];
+        if (next != null) {
+            next.previous = previous;
+        } else {
+            tail = previous;
+        }
+        while (level > 1 && head.next[level - 1] == null) {
+            level--;
+        }
+        size -= removed;
+        modCount++;
+    }
+
+    @Override
+    public int lowerBound(E key) {
+        Node<E> x = head;
+        int traversed = 0;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && comparator.compare(x.next[i].element, key) < 0) {
+                traversed += x.span[i];
+                x = x.next[i];
+            }
+        }
+        return traversed;
+    }
+
+    @Override
+    public int upperBound(E key) {
+        Node<E> x = head;
+        int traversed = 0;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && comparator.compare(x.next[i].element, key) <= 0) {
+                traversed += x.span[i];
+                x = x.next[i];
+            }
+        }
+        return traversed;
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < MAX_LEVEL; i++) {
+            head.next[i] = null;
+            head.span[i] = 0;
+        }
+        tail = null;
+        level = 1;
+        size = 0;
+        fingerNode = null;
+        modCount++;
+    }
+
+    @Override
+    public StorageStatistics statistics() {
+        return new StorageStatistics(StorageEngine.SKIP_LIST);
+    }
+
+    @Override
+    public ListIterator<E> listIterator(int index) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return new Cursor(index);
+    }
+
+    /**
+     * Returns the node at the specified position.
+     */
+    private Node<E> node(int index) {
+        checkIndex(index);
+        if (index == size - 1) {
+            return tail;
+        }
+        Node<E> x;
+        if (fingerModCount == modCount && Math.abs(index - fingerIndex) <= FINGER_DISTANCE) {
+            x = fingerNode;
+            for (int i = fingerIndex; i < index; i++) {
+                x = x.next[0];
+            }
+            for (int i = fingerIndex; i > index; i--) {
+                x = x.previous;
+            }
+        } else {
+            x = search(index);
+        }
+        fingerNode = x;
+        fingerIndex = index;
+        fingerModCount = modCount;
+        return x;
+    }
+
+    /**
+     * Searches the node at the specified position from the head.
+     */
+    private Node<E> search(int index) {
+        Node<E> x = head;
+        int traversed = 0;
+        int rank = index + 1;
+        for (int i = level - 1; i >= 0; i--) {
+            while (x.next[i] != null && traversed + x.span[i] <= rank) {
+                traversed += x.span[i];
+                x = x.next[i];
+            }
+            if (traversed == rank) {
+                return x;
+            }
+        }
+        return x;
+    }
+
+    /**
+     * Links a new node after the predecessors given by {@code update} whose ranks (position + 1) are given by {@code rank}.
+     */
+    private void link(Node<E>[] update, int[] rank, E element) {
+        int nodeLevel = randomLevel();
+        if (nodeLevel > level) {
+            for (int i = level; i < nodeLevel; i++) {
+                rank[i] = 0;
+                update[i] = head;
+                head.span[i] = size;
+            }
+            level = nodeLevel;
+        }
+        Node<E> node = new Node<>(element, nodeLevel);
+        for (int i = 0; i < nodeLevel; i++) {
+            node.next[i] = update[i].next[i];
+            update[i].next[i] = node;
+            node.span[i] = update[i].span[i] - (rank[0] - rank[i]);
+            update[i].span[i] = rank[0] - rank[i] + 1;
+        }
+        for (int i = nodeLevel; i < level; i++) {
+            update[i].span[i]++;
+        }
+        node.previous = update[0] == head ? null : update[0];
+        if (node.next[0] != null) {
+            node.next[0].previous = node;
+        } else {
+            tail = node;
+        }
+        size++;
+        modCount++;
+    }
+
+    /**
+     * Unlinks the specified node whose predecessors are given by {@code update}.
+     */
+    private void unlink(Node<E>[] update, Node<E> node) {
+        for (int i = 0; i < level; i++) {
+            if (update[i].next[i] == node) {
+                update[i].span[i] += node.span[i] - 1;
+                update[i].next[i] = node.next[i];
+            } else {
+                update[i].span[i]--;
+            }
+        }
+        if (node.next[0] != null) {
+            node.next[0].previous = node.previous;
+        } else {
+            tail = node.previous;
+        }
+        while (level > 1 && head.next[level - 1] == null) {
+            level--;
+        }
+        size--;
+        modCount++;
+    }
+
+    private static int randomLevel() {
+        // each level is promoted with probability 1/4
+        int level = 1 + Integer.numberOfTrailingZeros(ThreadLocalRandom.current().nextInt()) / 2;
+        return Math.min(level, MAX_LEVEL);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    private static final class Node<E> {
+        private E element;
+
+        private final Node<E>[] next;
+
+        private final int[] span;
+
+        private Node<E> previous;
+
+        private Node(E element, int level) {
+            this.element = element;
+            this.next = newArray(level);
+            this.span = new int[level];
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <E> Node<E>[] newArray(int length) {
+            return (Node<E>[]) new Node<?>[length];
+        }
+    }
+
+    private final class Cursor implements ListIterator<E> {
+        private Node<E> next;
+
+        private int nextIndex;
+
+        private Node<E> lastReturned;
+
+        private int expectedModCount = modCount;
+
+        private Cursor(int index) {
+            this.next = index == size ? null : node(index);
+            this.nextIndex = index;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextIndex < size;
+        }
+
+        @Override
+        public E next() {
+            checkForComodification();
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = next;
+            next = next.next[0];
+            nextIndex++;
+            return lastReturned.element;
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return nextIndex > 0;
+        }
+
+        @Override
+        public E previous() {
+            checkForComodification();
+            if (!hasPrevious()) {
+                throw new NoSuchElementException();
+            }
+            next = next == null ? tail : next.previous;
+            lastReturned = next;
+            nextIndex--;
+            return lastReturned.element;
+        }
+
+        @Override
+        public int nextIndex() {
+            return nextIndex;
+        }
+
+        @Override
+        public int previousIndex() {
+            return nextIndex - 1;
+        }
+
+        @Override
+        public void remove() {
+            checkForComodification();
+            if (lastReturned == null) {
+                throw new IllegalStateException();
+            }
+            if (lastReturned == next) {
+                next = next.next[0];
+                SkipListStorage.this.remove(nextIndex);
+            } else {
+                SkipListStorage.this.remove(--nextIndex);
+            }
+            lastReturned = null;
+            expectedModCount = modCount;
+        }
+
+        @Override
+        public void set(E e) {
+            checkForComodification();
+            if (lastReturned == null) {
+                throw new IllegalStateException();
+            }
+            lastReturned.element = e;
+        }
+
+        @Override
+        public void add(E e) {
+            checkForComodification();
+            SkipListStorage.this.add(nextIndex++, e);
+            lastReturned = null;
+            expectedModCount = modCount;
+        }
+
+        private void checkForComodification() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+}
@@ -0,0 +1,361 @@
+package io.github.vaclavrechtberger.util;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.PrimitiveIterator;
+import java.util.stream.DoubleStream;
+
+/**
+ * Sorted list of {@code double} values backed by a primitive array.
+ * Unlike {@code SortedLinkedList<Double>}, it keeps the values unboxed and compares them without a comparator (in the order of {@link Double#compare(double, double)}, i.e., {@code -0.0 < 0.0} and {@code NaN} is the largest value),
+ * so adding and looking up a value does not allocate (apart from growing the array).
+ * Values are found by a binary search, so {@link #contains(double)} and {@link #indexOf(double)} take O(log n),
+ * and {@link #add(double)} takes O(log n) plus the shift of the array tail (O(1) for a value not less than the last one).
+ * <p>
+ * Null values are optional (see {@link io.github.vaclavrechtberger.util.NullPlacement}). They are not stored in the array,
+ * only counted and placed at the beginning or at the end of this list. They take part in indexes and in the boxed view {@link #boxed()},
+ * which presents this list as a {@code List<Double>} for interoperability, but not in the primitive iterator, stream and array.
+ * This class is not thread-safe.
+ */
+public class SortedDoubleList {
+    private static final double[] EMPTY = {};
+
+    private final NullPlacement nullPlacement;
+
+    private double[] values = EMPTY;
+
+    private int valueCount;
+
+    private int nullCount;
+
+    private int modCount;
+
+    /**
+     * Constructs an empty list which does not permit null values.
+     */
+    public SortedDoubleList() {
+        this(NullPlacement.NOT_PERMITTED);
+    }
+
+    /**
+     * Constructs an empty list with the specified placement of null values.
+     *
+     * @param nullPlacement the placement of null values
+     */
+    public SortedDoubleList(NullPlacement nullPlacement) {
+        this.nullPlacement = Objects.requireNonNull(nullPlacement);
+    }
+
+    /**
+     * Returns the number of elements (values and nulls) in this list.
+     *
+     * @return the number of elements in this list
+     */
+    public int size() {
+        return valueCount + nullCount;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Returns the number of null elements in this list.
+     *
+     * @return the number of null elements
+     */
+    public int nullCount() {
+        return nullCount;
+    }
+
+    /**
+     * Adds the specified value at the appropriate position (after all the equal values).
+     *
+     * @param value the value to be added
+     * @return {@code true}
+     */
+    public boolean add(double value) {
+        int index = valueCount == 0 || Double.compare(values[valueCount - 1], value) <= 0 ? valueCount : upperBound(value);
+        if (valueCount == values.length) {
+            values = Arrays.copyOf(values, Math.max(8, valueCount + (valueCount >> 1)));
+        }
+        System.arraycopy(values, index, values, index + 1, valueCount - index);
+        values[index] = value;
+        valueCount++;
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Adds a null element.
+     *
+     * @return {@code true}
+     * @throws NullPointerException if this list does not permit null values
+     */
+    public boolean addNull() {
+        if (nullPlacement == NullPlacement.NOT_PERMITTED) {
+            throw new NullPointerException("This list does not permit null values.");
+        }
+        nullCount++;
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Returns {@code true} if this list contains the specified value.
+     *
+     * @param value the value whose presence is to be tested
+     * @return {@code true} if this list contains the value
+     */
+    public boolean contains(double value) {
+        int i = lowerBound(value);
+        return i < valueCount && Double.compare(values[i], value) == 0;
+    }
+
+    /**
+     * Returns the index of the first occurrence of the specified value, or -1 if this list does not contain it.
+     *
+     * @param value the value to search for
+     * @return the index of the first occurrence of the value, or -1
+     */
+    public int indexOf(double value) {
+        int i = lowerBound(value);
+        return i < valueCount && Double.compare(values[i], value) == 0 ? valueOffset() + i : -1;
+    }
+
+    /**
+     * Returns the index of the last occurrence of the specified value, or -1 if this list does not contain it.
+     *
+     * @param value the value to search for
+     * @return the index of the last occurrence of the value, or -1
+     */
+    public int lastIndexOf(double value) {
+        int i = upperBound(value) - 1;
+        return i >= 0 && Double.compare(values[i], value) == 0 ? valueOffset() + i : -1;
+    }
+
+    /**
+     * Returns the value at the specified position.
+     *
+     * @param index the index of the value to return
+     * @return the value at the specified position
+     * @throws IndexOutOfBoundsException if the index is out of range ({@code index < 0 || index >= size()})
+     * @throws NullPointerException if the element at the specified position is null
+     */
+    public double getDouble(int index) {
+        Objects.checkIndex(index, size());
+        int i = index - valueOffset();
+        if (i < 0 || i >= valueCount) {
+            throw new NullPointerException("Element at index " + index + " is null.");
+        }
+        return values[i];
+    }
+
+    /**
+     * Returns {@code true} if the element at the specified position is null.
+     *
+     * @param index the index of the element
+     * @return {@code true} if the element is null
+     * @throws IndexOutOfBoundsException if the index is out of range ({@code index < 0 || index >= size()})
+     */
+    public boolean isNull(int index) {
+        Objects.checkIndex(index, size());
+        int i = index - valueOffset();
+        return i < 0 || i >= valueCount;
+    }
+
+    /**
+     * Removes the first occurrence of the specified value.
+     *
+     * @param value the value to be removed
+     * @return {@code true} if this list contained the value
+     */
+    public boolean removeValue(double value) {
+        int i = lowerBound(value);
+        if (i < valueCount && Double.compare(values[i], value) == 0) {
+            removeValueAt(i);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Removes one null element.
+     *
+     * @return {@code true} if this list contained a null element
+     */
+    public boolean removeNull() {
+        if (nullCount == 0) {
+            return false;
+        }
+        nullCount--;
+        modCount++;
+        return true;
+    }
+
+    public void clear() {
+        values = EMPTY;
+        valueCount = 0;
+        nullCount = 0;
+        modCount++;
+    }
+
+    /**
+     * Returns the (non-null) values of this list in their order.
+     *
+     * @return a new array of the values
+     */
+    public double[] toArray() {
+        return Arrays.copyOf(values, valueCount);
+    }
+
+    /**
+     * Returns an iterator over the (non-null) values of this list in their order.
+     *
+     * @return an iterator over the values
+     */
+    public PrimitiveIterator.OfDouble iterator() {
+        return new PrimitiveIterator.OfDouble() {
+            private int next;
+
+            private final int expectedModCount = modCount;
+
+            @Override
+            public boolean hasNext() {
+                return next < valueCount;
+            }
+
+            @Override
+            public double nextDouble() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return values[next++];
+            }
+        };
+    }
+
+    /**
+     * Returns a sequential stream of the (non-null) values of this list in their order.
+     * The list must not be modified until the stream is consumed.
+     *
+     * @return a stream of the values
+     */
+    public DoubleStream stream() {
+        return Arrays.stream(values, 0, valueCount);
+    }
+
+    /**
+     * Returns a view of this list as a list of boxed values, where null elements are represented by {@code null}.
+     * The view supports adding and removing elements; positional insertions and replacements are not supported since they could break the ordering.
+     *
+     * @return the boxed view of this list
+     */
+    public List<Double> boxed() {
+        return new BoxedView();
+    }
+
+    @Override
+    public String toString() {
+        return boxed().toString();
+    }
+
+    private int valueOffset() {
+        return nullPlacement == NullPlacement.FIRST ? nullCount : 0;
+    }
+
+    private void removeValueAt(int i) {
+        System.arraycopy(values, i + 1, values, i, valueCount - i - 1);
+        valueCount--;
+        modCount++;
+    }
+
+    private int lowerBound(double value) {
+        int low = 0;
+        int high = valueCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (Double.compare(values[middle], value) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int upperBound(double value) {
+        int low = 0;
+        int high = valueCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (Double.compare(values[middle], value) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private class BoxedView extends AbstractList<Double> {
+        @Override
+        public Double get(int index) {
+            return isNull(index) ? null : values[index - valueOffset()];
+        }
+
+        @Override
+        public int size() {
+            return SortedDoubleList.this.size();
+        }
+
+        @Override
+        public boolean add(Double value) {
+            return value == null ? addNull() : SortedDoubleList.this.add(value);
+        }
+
+        @Override
+        public Double remove(int index) {
+            Double removed = get(index);
+            if (removed == null) {
+                removeNull();
+            } else {
+                removeValueAt(index - valueOffset());
+            }
+            return removed;
+        }
+
+        @Override
+        public int indexOf(Object o) {
+            if (o == null) {
+                return nullCount == 0 ? -1 : nullPlacement == NullPlacement.FIRST ? 0 : valueCount;
+            }
+            return o instanceof Double value ? SortedDoubleList.this.indexOf(value) : -1;
+        }
+
+        @Override
+        public int lastIndexOf(Object o) {
+            if (o == null) {
+                return nullCount == 0 ? -1 : nullPlacement == NullPlacement.FIRST ? nullCount - 1 : size() - 1;
+            }
+            return o instanceof Double value ? SortedDoubleList.this.lastIndexOf(value) : -1;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return indexOf(o) >= 0;
+        }
+
+        @Override
+        public void clear() {
+            SortedDoubleList.this.clear();
+        }
+    }
+}
@@ -1,7 +1,11 @@
 package io.github.vaclavrechtberger.util;
 
 import java.util.*;
-import java.util.stream.IntStream;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongFunction;
 
 
 /**
@@ -10,6 +14,8 @@ import java.util.stream.IntStream;
  * According to this regards behaviour of this class slightly differ form {@link List} specification as mentioned below.
  * For instance added values are not appended to the end of this list but placed at appropriate position @see {@link io.github.vaclavrechtberger.util.SortedLinkedList#add(Comparable)}.
  * For more differences see whole documentation of this class and its methods.
+ * The elements are kept in a {@link io.github.vaclavrechtberger.util.SortedStorage} chosen at construction time (see {@link io.github.vaclavrechtberger.util.StorageEngine}).
+ * By default an indexable skip list is used, so adding, removing and looking up elements by value or by position take expected O(log n) time.
  * This class is not thread-safe.
  * Note: To make this class thread-safe, we must place code in methods such as add, addFirst, addLast, remove, and removeAll within a synchronized block, utilizing the same lock, or implement some alternative upgrade for concurrent access.
  *
@@ -21,10 +27,33 @@ public class SortedLinkedList<E extends Comparable<E>> implements List<E>{
     public static final String WRONG_POSITION_MESSAGE_TEMPLATE = "Cannot add specified %s at %s position since it would break ordering.";
 
     public static final String WRONG_REPLACEMENT_MESSAGE = "Cannot replace element at specified index by specified element since it would break ordering.";
-    private final List<E> delegatedList = new LinkedList<>();
+    private final SortedStorage<E> storage;
 
     private final Comparator<? super E> comparator;
 
+    private long appendCount;
+
+    private long prependCount;
+
+    /**
+     * Whether elements equal according to the comparator are rejected (see {@link Builder#distinct()}).
+     */
+    private boolean distinct;
+
+    /**
+     * Maximal number of elements (see {@link Builder#bounded(int)}).
+     */
+    private int capacity = Integer.MAX_VALUE;
+
+    private boolean evictLargest = true;
+
+    private Consumer<? super E> evictionListener;
+
+    /**
+     * Outermost storage if the elements expire (see {@link Builder#expireAfter(long, LongSupplier)}), otherwise {@code null}.
+     */
+    private ExpiringStorage<E> expiring;
+
     /**
      * Constructs an empty sorted list with natural ordering, placing null values at the beginning.
      */
@@ -40,6 +69,15 @@ public class SortedLinkedList<E extends Comparable<E>> implements List<E>{
         this(collection, Utils.createNaturalOrderNullFirstComparator());
     }
 
+    /**
+     * Constructs an empty sorted list with natural ordering, placing null values at the beginning, backed by the specified storage engine.
+     *
+     * @param engine the storage engine to keep the elements in
+     */
+    public SortedLinkedList(StorageEngine engine) {
+        this(Utils.createNaturalOrderNullFirstComparator(), engine);
+    }
+
     /**
      * Constructs an empty sorted list with the ordering given by the specified comparator.
      * Keep in mind that the specified comparator affects the behavior of this class
@@ -50,7 +88,30 @@ public class SortedLinkedList<E extends Comparable<E>> implements List<E>{
      * @param comparator the comparator to determine the ordering of elements
      */
     public SortedLinkedList(Comparator<E> comparator) {
-        this.comparator = comparator;
+        this(comparator, StorageEngine.SKIP_LIST);
+    }
+
+    /**
+     * Constructs an empty sorted list with the ordering given by the specified comparator, backed by the specified storage engine.
+     * See {@link io.github.vaclavrechtberger.util.SortedLinkedList#SortedLinkedList(Comparator)}
+     *
+     * @param comparator the comparator to determine the ordering of elements
+     * @param engine the storage engine to keep the elements in
+     */
+    public SortedLinkedList(Comparator<E> comparator, StorageEngine engine) {
+        this(engine.create(comparator));
+    }
+
+    /**
+     * Constructs a sorted list backed by the specified storage, which also determines the ordering of elements.
+     * The storage may already hold elements (e.g., a {@link io.github.vaclavrechtberger.util.MappedFileStorage} opened from an existing file);
+     * they are expected to be in the order given by its comparator.
+     *
+     * @param storage the storage to keep the elements in
+     */
+    public SortedLinkedList(SortedStorage<E> storage) {
+        this.storage = storage;
+        this.comparator = storage.comparator();
     }
 
     /**
@@ -61,75 +122,186 @@ public class SortedLinkedList<E extends Comparable<E>> implements List<E>{
      * @param comparator the comparator to determine the ordering of elements
      */
     public SortedLinkedList(Collection<? extends E> collection, Comparator<E> comparator) {
-        delegatedList.addAll(collection);
-        delegatedList.sort(comparator);
-        this.comparator = comparator;
+        this(collection, comparator, StorageEngine.SKIP_LIST);
+    }
+
+    /**
+     * Constructs a sorted list with the ordering given by the specified comparator, backed by the specified storage engine, and containing the elements of the specified collection.
+     * See {@link io.github.vaclavrechtberger.util.SortedLinkedList#SortedLinkedList(Comparator)}
+     *
+     * @param collection the specified collection
+     * @param comparator the comparator to determine the ordering of elements
+     * @param engine the storage engine to keep the elements in
+     */
+    public SortedLinkedList(Collection<? extends E> collection, Comparator<E> comparator, StorageEngine engine) {
+        this(comparator, engine);
+        storage.addAll(0, sorted(collection, this.comparator));
     }
 
     @Override
     public int size() {
-        return delegatedList.size();
+        expireIfDue();
+        return storage.size();
     }
 
     @Override
     public boolean isEmpty() {
-        return delegatedList.isEmpty();
+        expireIfDue();
+        return storage.isEmpty();
     }
 
+    /**
+     * Returns {@code true} if this list contains the specified element.
+     * The run of elements equal to the specified one according to the comparator is located in O(log n) first
+     * and only this run is searched for an element equal to the specified one according to {@link Object#equals(Object)}.
+     *
+     * @param o element whose presence in this list is to be tested
+     * @return {@code true} if this list contains the specified element
+     */
     @Override
     public boolean contains(Object o) {
-        return delegatedList.contains(o);
+        return indexOf(o) >= 0;
     }
 
     @Override
     public Iterator<E> iterator() {
-        return delegatedList.iterator();
+        expireIfDue();
+        return new Itr(0);
     }
 
     @Override
     public Object[] toArray() {
-        return delegatedList.toArray();
+        expireIfDue();
+        return storage.toArray();
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public <T> T[] toArray(T[] a) {
-        return delegatedList.toArray(a);
+        expireIfDue();
+        Object[] elements = storage.toArray();
+        if (a.length < elements.length) {
+            return (T[]) Arrays.copyOf(elements, elements.length, a.getClass());
+        }
+        System.arraycopy(elements, 0, a, 0, elements.length);
+        if (a.length > elements.length) {
+            a[elements.length] = null;
+        }
+        return a;
+    }
+
+    /**
+     * Returns a new builder of a sorted list, which allows combining the storage engine with further options.
+     *
+     * @return a new builder
+     * @param <E> the type of elements held in the list
+     */
+    public static <E extends Comparable<E>> Builder<E> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * Returns a new builder of a sorted list of strings kept front-coded: strings are grouped in buckets and every string but the first one
+     * of a bucket is kept as the length of the prefix shared with its predecessor and the remaining suffix.
+     * This cuts the memory taken by strings with long common prefixes (e.g., URLs or file paths).
+     * The ordering is still given by the comparator of the builder (including case-insensitive ones and the placement of null values);
+     * lookups search the bucket heads and decode a single bucket. Choosing a storage engine on the returned builder replaces the front coding.
+     *
+     * @return a new builder with front-coded storage
+     */
+    public static Builder<String> frontCodedBuilder() {
+        Builder<String> builder = new Builder<>();
+        builder.storageFactory = FrontCodedStorage::new;
+        return builder;
     }
 
     /**
      * Adds the specified element at the appropriate position in this list.
      * If this list already contains one or more equal elements, it appends the specified element to the end of this sublist of equal elements
      * (i.e., appends the specified element before the first larger element or at the end).
+     * An element which is not less than the last element is appended and an element which is less than the first element is prepended
+     * without searching (see {@link io.github.vaclavrechtberger.util.SortedLinkedList#getAppendCount()} and
+     * {@link io.github.vaclavrechtberger.util.SortedLinkedList#getPrependCount()}), so adding already ordered input costs O(1) per element
+     * with engines having cheap ends.
+     *
+     * In distinct mode (see {@link Builder#distinct()}), an element equal to one already in this list according to the comparator
+     * is detected by the same search which positions it and it is not added.
+     *
+     * In bounded mode (see {@link Builder#bounded(int)}), an element which would be evicted right away is rejected by a single comparison
+     * with the boundary element; otherwise the element is added and the boundary element is evicted if the capacity is exceeded.
      *
      * @param e the element whose presence in this collection is to be ensured
-     * @return true if the element was added
+     * @return true if the element was added; false if this list is distinct and already contains an equal element,
+     *         or if this list is bounded and the element has been rejected
      */
     @Override
     public boolean add(E e) {
-        if (isEmpty()) {
-            return delegatedList.add(e);
+        expireIfDue();
+        if (storage.size() >= capacity && wouldBeEvicted(e)) {
+            notifyEviction(e);
+            return false;
+        }
+        if (!insert(e)) {
+            return false;
         }
-        Iterator<E> iterator = this.iterator();
-        OptionalInt index = IntStream.range(0, this.size())
-                .filter(i -> comparator.compare(iterator.next(), e) > 0)
-                .findFirst();
+        evictOverflow();
+        return true;
+    }
 
-        if (index.isPresent()) {
-            delegatedList.add(index.getAsInt(), e);
-            return true;
-        } else { // list is empty or all the elements are less or equal
-            return delegatedList.add(e);
+    /**
+     * Inserts the element at the appropriate position, trying the fast paths at both ends first.
+     *
+     * @param e the element to be inserted
+     * @return {@code false} if this list is distinct and already contains an equal element
+     */
+    private boolean insert(E e) {
+        int size = storage.size();
+        int toLast = size == 0 ? -1 : comparator.compare(storage.last(), e);
+        if (toLast < 0 || toLast == 0 && !distinct) {
+            storage.add(size, e);
+            appendCount++;
+        } else if (toLast == 0) {
+            return false;
+        } else if (comparator.compare(e, storage.first()) < 0) {
+            storage.add(0, e);
+            prependCount++;
+        } else if (distinct) {
+            int index = storage.lowerBound(e);
+            if (comparator.compare(storage.get(index), e) == 0) {
+                return false;
+            }
+            storage.add(index, e);
+        } else {
+            storage.insert(e);
         }
+        return true;
     }
 
+    /**
+     * Removes the first occurrence of the specified element from this list, if it is present.
+     * The element is located the same way as in {@link io.github.vaclavrechtberger.util.SortedLinkedList#contains(Object)}.
+     *
+     * @param o element to be removed from this list, if present
+     * @return {@code true} if this list contained the specified element
+     */
     @Override
     public boolean remove(Object o) {
-        return delegatedList.remove(o);
+        int index = indexOf(o);
+        if (index < 0) {
+            return false;
+        }
+        storage.remove(index);
+        return true;
     }
 
     @Override
     public boolean containsAll(Collection<?> c) {
-        return delegatedList.containsAll(c);
+        for (Object o : c) {
+            if (!contains(o)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -144,7 +316,26 @@ public class SortedLinkedList<E extends Comparable<E>> implements List<E>{
      */
     @Override
     public boolean addAll(Collection<? extends E> c) {
-        c.forEach(this::add);
+        if (isEmpty()) {
+            List<E> sorted = sorted(c, comparator);
+            if (distinct) {
+                removeAdjacentDuplicates(sorted);
+            }
+            if (sorted.size() > capacity) {
+                List<E> evicted = evictLargest ? sorted.subList(capacity, sorted.size()) : sorted.subList(0, sorted.size() - capacity);
+                evicted.forEach(this::notifyEviction);
+                evicted.clear();
+            }
+            storage.addAll(0, sorted);
+        } else if (distinct || capacity < Integer.MAX_VALUE) {
+            boolean changed = false;
+            for (E e : c) {
+                changed |= add(e);
+            }
+            return changed;
+        } else {
+            c.forEach(this::add);
+        }
         return true;
     }
 
@@ -170,30 +361,37 @@ public class SortedLinkedList<E extends Comparable<E>> implements List<E>{
         }
         List<E> tmpList = new ArrayList<>(c);
         tmpList.sort(this.comparator);
+        if (distinct && removeAdjacentDuplicates(tmpList)) {
+            throw new IllegalArgumentException(WRONG_POSITION_MESSAGE_TEMPLATE.formatted("collection", "specified"));
+        }
         if (checkForInsert(index, tmpList.getFirst(), tmpList.getLast())) {
-            return delegatedList.addAll(index, tmpList);
+            storage.addAll(index, tmpList);
+            evictOverflow();
+            return true;
         }
         throw new IllegalArgumentException(WRONG_POSITION_MESSAGE_TEMPLATE.formatted("collection", "specified"));
     }
 
     @Override
     public boolean removeAll(Collection<?> c) {
-        return delegatedList.removeAll(c);
+        Objects.requireNonNull(c);
+        return removeIf(c::contains);
     }
 
     @Override
     public boolean retainAll(Collection<?> c) {
-        return delegatedList.retainAll(c);
+        Objects.requireNonNull(c);
+        return removeIf(e -> !c.contains(e));
     }
 
     @Override
     public void clear() {
-        delegatedList.clear();
+        storage.clear();
     }
 
     @Override
     public E get(int index) {
-        return delegatedList.get(index);
+        return storage.get(index);
     }
 
     /**
@@ -214,7 +412,7 @@ public class SortedLinkedList<E extends Comparable<E>> implements List<E>{
     public E set(int index, E element) {
         checkBounds(index);
         if (checkForSet(index, element)) {
-            return delegatedList.set(index, element);
+            return storage.set(index, element);
         }
         throw new IllegalArgumentException(WRONG_REPLACEMENT_MESSAGE);
     }
@@ -237,7 +435,8 @@ public class SortedLinkedList<E extends Comparable<E>> implements List<E>{
     public void add(int index, E element) {
         checkBounds(index);
         if (checkForInsert(index, element)) {
-            delegatedList.add(index, element);
+            storage.add(index, element);
+            evictOverflow();
             return;
         }
         throw new IllegalArgumentException(WRONG_POSITION_MESSAGE_TEMPLATE.formatted("element", "specified"));
@@ -245,37 +444,386 @@ public class SortedLinkedList<E extends Comparable<E>> implements List<E>{
 
     @Override
     public E remove(int index) {
-        return delegatedList.remove(index);
+        return storage.remove(index);
     }
 
+    /**
+     * Removes the elements at the positions from {@code fromIndex}, inclusive, to {@code toIndex}, exclusive.
+     * The storage removes the whole block in one operation (in O(log n) for the tree and skip list engines),
+     * so the cost does not grow with the number of elements before the block. The array-based storages move their tail once,
+     * the compressed, front-coded and run-length ones drop the blocks, buckets or groups inside the range and re-encode only its ends,
+     * and {@link io.github.vaclavrechtberger.util.MappedFileStorage} marks the range by tombstones with a single check for a merge.
+     *
+     * @param fromIndex the index of the first element to be removed
+     * @param toIndex the index after the last element to be removed
+     * @throws IndexOutOfBoundsException if {@code fromIndex < 0 || toIndex > size() || fromIndex > toIndex}
+     */
+    public void removeRange(int fromIndex, int toIndex) {
+        storage.removeRange(fromIndex, toIndex);
+    }
+
+    /**
+     * Removes the elements ranging from {@code fromElement} to {@code toElement}, i.e., the elements of
+     * {@link #rangeList(Comparable, boolean, Comparable, boolean)}. Both ends are located in O(log n) and the block is removed
+     * as by {@link #removeRange(int, int)}.
+     *
+     * @param fromElement low endpoint of the range
+     * @param fromInclusive {@code true} if the low endpoint is to be removed
+     * @param toElement high endpoint of the range
+     * @param toInclusive {@code true} if the high endpoint is to be removed
+     * @return the number of removed elements
+     * @throws IllegalArgumentException if {@code fromElement} is greater than {@code toElement}
+     */
+    public int removeRange(E fromElement, boolean fromInclusive, E toElement, boolean toInclusive) {
+        if (comparator.compare(fromElement, toElement) > 0) {
+            throw new IllegalArgumentException("fromElement > toElement");
+        }
+        expireIfDue();
+        int from = startOf(fromElement, fromInclusive);
+        int to = Math.max(from, endOf(toElement, toInclusive));
+        storage.removeRange(from, to);
+        return to - from;
+    }
+
+    /**
+     * Returns the index of the first occurrence of the specified element in this list, or -1 if this list does not contain the element.
+     * The element is located the same way as in {@link io.github.vaclavrechtberger.util.SortedLinkedList#contains(Object)}.
+     *
+     * @param o element to search for
+     * @return the index of the first occurrence of the specified element in this list, or -1 if this list does not contain the element
+     */
     @Override
+    @SuppressWarnings("unchecked")
     public int indexOf(Object o) {
-        return delegatedList.indexOf(o);
+        expireIfDue();
+        E key = (E) o;
+        int from;
+        try {
+            from = storage.lowerBound(key);
+        } catch (ClassCastException | NullPointerException exception) {
+            // the comparator cannot handle the specified object, so it cannot be compared to the elements of this list
+            return linearIndexOf(o);
+        }
+        ListIterator<E> iterator = storage.listIterator(from);
+        while (iterator.hasNext()) {
+            E element = iterator.next();
+            if (comparator.compare(element, key) != 0) {
+                break;
+            }
+            if (Objects.equals(element, o)) {
+                return iterator.previousIndex();
+            }
+        }
+        return -1;
     }
 
+    /**
+     * Returns the index of the last occurrence of the specified element in this list, or -1 if this list does not contain the element.
+     * The element is located the same way as in {@link io.github.vaclavrechtberger.util.SortedLinkedList#contains(Object)},
+     * searching the run of elements equal to it according to the comparator from its end.
+     *
+     * @param o element to search for
+     * @return the index of the last occurrence of the specified element in this list, or -1 if this list does not contain the element
+     */
     @Override
+    @SuppressWarnings("unchecked")
     public int lastIndexOf(Object o) {
-        return delegatedList.lastIndexOf(o);
+        expireIfDue();
+        E key = (E) o;
+        int to;
+        try {
+            to = storage.upperBound(key);
+        } catch (ClassCastException | NullPointerException exception) {
+            // the comparator cannot handle the specified object, so it cannot be compared to the elements of this list
+            return linearLastIndexOf(o);
+        }
+        ListIterator<E> iterator = storage.listIterator(to);
+        while (iterator.hasPrevious()) {
+            E element = iterator.previous();
+            if (comparator.compare(element, key) != 0) {
+                break;
+            }
+            if (Objects.equals(element, o)) {
+                return iterator.nextIndex();
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the span of indexes of the elements equal to the specified key according to the comparator.
+     * Both ends are located by the search of the storage in O(log n); the span is empty if there is no such element,
+     * in which case both ends are the index at which the key would be inserted.
+     *
+     * @param key the key to search for
+     * @return a two-element array holding the index of the first equal element (inclusive) and the index after the last one (exclusive)
+     */
+    public int[] equalRange(E key) {
+        expireIfDue();
+        int from = storage.lowerBound(key);
+        return new int[]{from, Math.max(from, storage.upperBound(key))};
     }
 
     @Override
     public ListIterator<E> listIterator() {
-        return delegatedList.listIterator();
+        expireIfDue();
+        return new Itr(0);
     }
 
     @Override
     public ListIterator<E> listIterator(int index) {
-        return delegatedList.listIterator(index);
+        expireIfDue();
+        checkBounds(index);
+        return new Itr(index);
     }
 
+    /**
+     * Returns a view of the portion of this list between the specified fromIndex, inclusive, and toIndex, exclusive.
+     * Modifications of the returned list are subject to the same ordering checks as modifications of this list.
+     *
+     * @param fromIndex low endpoint (inclusive) of the subList
+     * @param toIndex high endpoint (exclusive) of the subList
+     * @return a view of the specified range within this list
+     * @throws IndexOutOfBoundsException for an illegal endpoint index value
+     */
     @Override
     public List<E> subList(int fromIndex, int toIndex) {
-        return delegatedList.subList(fromIndex, toIndex);
+        if (fromIndex < 0 || toIndex > storage.size() || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("fromIndex: " + fromIndex + ", toIndex: " + toIndex + ", Size: " + storage.size());
+        }
+        return new SubList(fromIndex, toIndex);
+    }
+
+    /**
+     * Returns a view of the portion of this list whose elements range from {@code fromElement} to {@code toElement} according to the comparator.
+     * The view is backed by this list and tracks its changes: both bounds are located by the search of the storage in O(log n)
+     * whenever the view is accessed, so its size is known without iterating and its iterator walks only the elements within the range.
+     * Elements added or set through the view must lie within the range, otherwise {@link IllegalArgumentException} is thrown.
+     *
+     * @param fromElement low endpoint of the range
+     * @param fromInclusive {@code true} if the low endpoint is to be included in the view
+     * @param toElement high endpoint of the range
+     * @param toInclusive {@code true} if the high endpoint is to be included in the view
+     * @return a view of the elements within the specified range
+     * @throws IllegalArgumentException if {@code fromElement} is greater than {@code toElement}
+     */
+    public List<E> rangeList(E fromElement, boolean fromInclusive, E toElement, boolean toInclusive) {
+        if (comparator.compare(fromElement, toElement) > 0) {
+            throw new IllegalArgumentException("fromElement > toElement");
+        }
+        return new RangeList(true, fromElement, fromInclusive, true, toElement, toInclusive);
+    }
+
+    /**
+     * Returns a view of the portion of this list whose elements are less than (or equal to, if {@code inclusive} is true) {@code toElement}.
+     * See {@link #rangeList(Comparable, boolean, Comparable, boolean)}.
+     *
+     * @param toElement high endpoint of the range
+     * @param inclusive {@code true} if the high endpoint is to be included in the view
+     * @return a view of the elements less than (or equal to) {@code toElement}
+     */
+    public List<E> headList(E toElement, boolean inclusive) {
+        return new RangeList(false, null, false, true, toElement, inclusive);
+    }
+
+    /**
+     * Returns a view of the portion of this list whose elements are greater than (or equal to, if {@code inclusive} is true) {@code fromElement}.
+     * See {@link #rangeList(Comparable, boolean, Comparable, boolean)}.
+     *
+     * @param fromElement low endpoint of the range
+     * @param inclusive {@code true} if the low endpoint is to be included in the view
+     * @return a view of the elements greater than (or equal to) {@code fromElement}
+     */
+    public List<E> tailList(E fromElement, boolean inclusive) {
+        return new RangeList(true, fromElement, inclusive, false, null, false);
+    }
+
+    /**
+     * Returns the number of elements of this list strictly less than the specified element, i.e., the index at which it would be inserted
+     * before its equal elements. The count is answered by the search of the storage in O(log n) without iterating.
+     *
+     * @param e the element to compare with
+     * @return the number of elements less than {@code e}
+     */
+    public int rank(E e) {
+        expireIfDue();
+        return storage.lowerBound(e);
+    }
+
+    /**
+     * Returns the number of elements of this list ranging from {@code fromElement} to {@code toElement}, i.e., the size of
+     * {@link #rangeList(Comparable, boolean, Comparable, boolean)}. Both ends of the range are located in O(log n) without iterating.
+     *
+     * @param fromElement low endpoint of the range
+     * @param fromInclusive {@code true} if the low endpoint is to be counted
+     * @param toElement high endpoint of the range
+     * @param toInclusive {@code true} if the high endpoint is to be counted
+     * @return the number of elements within the specified range
+     * @throws IllegalArgumentException if {@code fromElement} is greater than {@code toElement}
+     */
+    public int countRange(E fromElement, boolean fromInclusive, E toElement, boolean toInclusive) {
+        if (comparator.compare(fromElement, toElement) > 0) {
+            throw new IllegalArgumentException("fromElement > toElement");
+        }
+        expireIfDue();
+        int from = startOf(fromElement, fromInclusive);
+        return Math.max(0, endOf(toElement, toInclusive) - from);
+    }
+
+    /**
+     * Returns the greatest element of this list strictly less than the specified element, or {@code null} if there is no such element.
+     * The element is located by the search of the storage in O(log n).
+     *
+     * @param e the element to compare with
+     * @return the greatest element less than {@code e}, or {@code null} if there is no such element
+     */
+    public E lower(E e) {
+        return elementAt(lowerIndex(e));
+    }
+
+    /**
+     * Returns the greatest element of this list less than or equal to the specified element, or {@code null} if there is no such element.
+     *
+     * @param e the element to compare with
+     * @return the greatest element less than or equal to {@code e}, or {@code null} if there is no such element
+     */
+    public E floor(E e) {
+        return elementAt(floorIndex(e));
+    }
+
+    /**
+     * Returns the least element of this list greater than or equal to the specified element, or {@code null} if there is no such element.
+     *
+     * @param e the element to compare with
+     * @return the least element greater than or equal to {@code e}, or {@code null} if there is no such element
+     */
+    public E ceiling(E e) {
+        return elementAt(ceilingIndex(e));
+    }
+
+    /**
+     * Returns the least element of this list strictly greater than the specified element, or {@code null} if there is no such element.
+     *
+     * @param e the element to compare with
+     * @return the least element greater than {@code e}, or {@code null} if there is no such element
+     */
+    public E higher(E e) {
+        return elementAt(higherIndex(e));
+    }
+
+    /**
+     * Returns the index of the last element strictly less than the specified element, or -1 if there is no such element.
+     * Unlike {@link #lower(Comparable)}, the result distinguishes a missing element from a null element.
+     *
+     * @param e the element to compare with
+     * @return the index of the greatest element less than {@code e}, or -1 if there is no such element
+     */
+    public int lowerIndex(E e) {
+        expireIfDue();
+        return storage.lowerBound(e) - 1;
+    }
+
+    /**
+     * Returns the index of the last element less than or equal to the specified element, or -1 if there is no such element.
+     *
+     * @param e the element to compare with
+     * @return the index of the greatest element less than or equal to {@code e}, or -1 if there is no such element
+     */
+    public int floorIndex(E e) {
+        expireIfDue();
+        return storage.upperBound(e) - 1;
+    }
+
+    /**
+     * Returns the index of the first element greater than or equal to the specified element, or -1 if there is no such element.
+     *
+     * @param e the element to compare with
+     * @return the index of the least element greater than or equal to {@code e}, or -1 if there is no such element
+     */
+    public int ceilingIndex(E e) {
+        expireIfDue();
+        int index = storage.lowerBound(e);
+        return index < storage.size() ? index : -1;
+    }
+
+    /**
+     * Returns the index of the first element strictly greater than the specified element, or -1 if there is no such element.
+     *
+     * @param e the element to compare with
+     * @return the index of the least element greater than {@code e}, or -1 if there is no such element
+     */
+    public int higherIndex(E e) {
+        expireIfDue();
+        int index = storage.upperBound(e);
+        return index < storage.size() ? index : -1;
+    }
+
+    /**
+     * Removes the expired elements of a list with expiring elements (see {@link Builder#expireAfter(long, LongSupplier)}).
+     * Expired elements are also removed at the start of {@code add}, {@code addAll}, {@code size}, {@code isEmpty}, {@code contains},
+     * {@code indexOf}, {@code lastIndexOf}, {@code remove(Object)}, {@code iterator}, {@code listIterator()}, {@code toArray} and {@code toString};
+     * positional operations do not remove them, so indexes obtained before stay valid.
+     * This method can be called periodically (e.g., by a scheduled task) to keep the memory bounded while the list is idle;
+     * since this class is not thread-safe, such a task must synchronize with the other users of the list.
+     *
+     * @return the number of removed elements (zero if the elements of this list do not expire)
+     */
+    public int expire() {
+        return expiring == null ? 0 : expiring.expire();
+    }
+
+    private void expireIfDue() {
+        if (expiring != null) {
+            expiring.expire();
+        }
+    }
+
+    /**
+     * Returns how many times {@link io.github.vaclavrechtberger.util.SortedLinkedList#add(Comparable)} appended an element
+     * at the end of this list without searching for its position.
+     *
+     * @return the number of fast appends
+     */
+    public long getAppendCount() {
+        return appendCount;
+    }
+
+    /**
+     * Returns how many times {@link io.github.vaclavrechtberger.util.SortedLinkedList#add(Comparable)} prepended an element
+     * at the beginning of this list without searching for its position.
+     *
+     * @return the number of fast prepends
+     */
+    public long getPrependCount() {
+        return prependCount;
+    }
+
+    /**
+     * Returns a snapshot of the statistics of the storage backing this list (e.g., its current representation and the number of migrations
+     * of {@link io.github.vaclavrechtberger.util.StorageEngine#ADAPTIVE}).
+     *
+     * @return the statistics of the storage
+     */
+    public StorageStatistics getStorageStatistics() {
+        return storage.statistics();
     }
 
     @Override
     public String toString() {
-        return delegatedList.toString();
+        expireIfDue();
+        Iterator<E> iterator = storage.iterator();
+        if (!iterator.hasNext()) {
+            return "[]";
+        }
+        StringBuilder builder = new StringBuilder("[");
+        while (true) {
+            E element = iterator.next();
+            builder.append(element == this ? "(this Collection)" : element);
+            if (!iterator.hasNext()) {
+                return builder.append(']').toString();
+            }
+            builder.append(", ");
+        }
     }
 
 
@@ -285,7 +833,7 @@ public class SortedLinkedList<E extends Comparable<E>> implements List<E>{
      */
     @Override
     public List<E> reversed() {
-        return Collections.unmodifiableList(delegatedList.reversed());
+        return Collections.unmodifiableList(new ReversedList());
     }
 
     /**
@@ -308,11 +856,11 @@ public class SortedLinkedList<E extends Comparable<E>> implements List<E>{
     }
 
     private boolean isInBounds(int index) {
-        return index >= 0 && index <= size();
+        return index >= 0 && index <= storage.size();
     }
 
     private String outOfBoundsMessage(int index) {
-        return "Index: " + index + ", Size: " + size();
+        return "Index: " + index + ", Size: " + storage.size();
     }
 
     /**
@@ -335,7 +883,7 @@ public class SortedLinkedList<E extends Comparable<E>> implements List<E>{
      * @return {@code true} if the sequence represented by min and max values can be inserted at the position
      */
     private boolean checkForInsert(int index, E min, E max) {
-        return (index == 0 || isLessOrEqual(get(index - 1), min)) && (index == size()  ||  isLessOrEqual(max, get(index)));
+        return (index == 0 || isInOrder(get(index - 1), min)) && (index == storage.size()  ||  isInOrder(max, get(index)));
     }
 
     /**
@@ -346,17 +894,825 @@ public class SortedLinkedList<E extends Comparable<E>> implements List<E>{
      * @return {@code true} if the element can be replaced without breaking the order
      */
     private boolean checkForSet(int index, E element) {
-        return (index == 0 || isLessOrEqual(get(index - 1), element)) && (index == (size() - 1)  ||  isLessOrEqual(element, get(index + 1)));
+        return (index == 0 || isInOrder(get(index - 1), element)) && (index == (storage.size() - 1)  ||  isInOrder(element, get(index + 1)));
     }
 
     /**
-     * Checks whether e1 is less than or equal to e2.
+     * Checks whether e1 may precede e2, i.e., whether e1 is less than or equal to e2 (less than e2 if this list is distinct).
      *
      * @param e1 the first element
      * @param e2 the second element
-     * @return {@code true} if e1 <= e2
+     * @return {@code true} if e1 <= e2 (e1 < e2 if this list is distinct)
      */
-    private boolean isLessOrEqual(E e1, E e2) {
-        return comparator.compare(e1, e2) <= 0;
+    private boolean isInOrder(E e1, E e2) {
+        int comparison = comparator.compare(e1, e2);
+        return comparison < 0 || comparison == 0 && !distinct;
+    }
+
+    /**
+     * Checks whether the element would be evicted right away if it was added to this full bounded list.
+     * Equal elements keep their order and the new element is inserted after its equal elements, so an element equal to the largest one
+     * would be evicted itself, while an element equal to the smallest one would evict the existing instance.
+     *
+     * @param e the element to be checked
+     * @return {@code true} if the element would be evicted
+     */
+    private boolean wouldBeEvicted(E e) {
+        return evictLargest ? comparator.compare(e, storage.last()) >= 0 : comparator.compare(e, storage.first()) < 0;
+    }
+
+    /**
+     * Evicts the boundary elements while this list exceeds its capacity.
+     *
+     * @return the number of elements evicted from the beginning of this list
+     */
+    private int evictOverflow() {
+        int evictedFromFront = 0;
+        while (storage.size() > capacity) {
+            if (evictLargest) {
+                notifyEviction(storage.remove(storage.size() - 1));
+            } else {
+                notifyEviction(storage.remove(0));
+                evictedFromFront++;
+            }
+        }
+        return evictedFromFront;
+    }
+
+    private void notifyEviction(E e) {
+        if (evictionListener != null) {
+            evictionListener.accept(e);
+        }
+    }
+
+    /**
+     * Returns the specified elements sorted by the specified comparator.
+     * A stable sort keeps the order of equal elements, so loading the result into an empty list is the same as adding them one by one.
+     */
+    private static <E> List<E> sorted(Collection<? extends E> elements, Comparator<? super E> comparator) {
+        List<E> sorted = new ArrayList<>(elements);
+        sorted.sort(comparator);
+        return sorted;
+    }
+
+    /**
+     * Removes the elements equal to their predecessor according to the comparator from the sorted list.
+     *
+     * @param sorted the sorted list
+     * @return {@code true} if some elements were removed
+     */
+    private boolean removeAdjacentDuplicates(List<E> sorted) {
+        int kept = 0;
+        for (E element : sorted) {
+            if (kept == 0 || comparator.compare(sorted.get(kept - 1), element) != 0) {
+                sorted.set(kept++, element);
+            }
+        }
+        boolean removed = kept < sorted.size();
+        sorted.subList(kept, sorted.size()).clear();
+        return removed;
+    }
+
+    /**
+     * Returns the index of the first element after the low endpoint of a range.
+     */
+    private int startOf(E fromElement, boolean inclusive) {
+        return inclusive ? storage.lowerBound(fromElement) : storage.upperBound(fromElement);
+    }
+
+    /**
+     * Returns the index after the last element before the high endpoint of a range.
+     */
+    private int endOf(E toElement, boolean inclusive) {
+        return inclusive ? storage.upperBound(toElement) : storage.lowerBound(toElement);
+    }
+
+    private E elementAt(int index) {
+        return index < 0 ? null : storage.get(index);
+    }
+
+    private int linearIndexOf(Object o) {
+        ListIterator<E> iterator = storage.listIterator(0);
+        while (iterator.hasNext()) {
+            if (Objects.equals(iterator.next(), o)) {
+                return iterator.previousIndex();
+            }
+        }
+        return -1;
+    }
+
+    private int linearLastIndexOf(Object o) {
+        ListIterator<E> iterator = storage.listIterator(storage.size());
+        while (iterator.hasPrevious()) {
+            if (Objects.equals(iterator.previous(), o)) {
+                return iterator.nextIndex();
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Builder of {@link io.github.vaclavrechtberger.util.SortedLinkedList}.
+     * By default, it builds the same list as {@link io.github.vaclavrechtberger.util.SortedLinkedList#SortedLinkedList()}.
+     *
+     * @param <E> the type of elements held in the list
+     */
+    public static final class Builder<E extends Comparable<E>> {
+        private Comparator<E> comparator = Utils.createNaturalOrderNullFirstComparator();
+
+        /**
+         * Whether the comparator is the default natural ordering (which lets order-preserving key codecs compare raw keys).
+         */
+        private boolean naturalOrdering = true;
+
+        private StorageEngine engine = StorageEngine.SKIP_LIST;
+
+        /**
+         * Factory of a specialized storage replacing the engine, or {@code null}.
+         */
+        private Function<Comparator<E>, SortedStorage<E>> storageFactory;
+
+        private Function<? super E, ? extends Comparable<?>> sortKey;
+
+        /**
+         * Comparator of non-null elements if null elements are segregated (see {@link #segregatedNulls(Comparator, boolean)}), otherwise {@code null}.
+         */
+        private Comparator<E> nonNullComparator;
+
+        private boolean nullsFirst;
+
+        private int bufferCapacity;
+
+        private boolean distinct;
+
+        private int capacity = Integer.MAX_VALUE;
+
+        private boolean evictLargest = true;
+
+        private Consumer<? super E> evictionListener;
+
+        private ToLongFunction<? super E> expiry;
+
+        private LongSupplier clock;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the comparator to determine the ordering of elements.
+         * See {@link io.github.vaclavrechtberger.util.SortedLinkedList#SortedLinkedList(Comparator)}
+         *
+         * @param comparator the comparator
+         * @return this builder
+         */
+        public Builder<E> comparator(Comparator<E> comparator) {
+            this.comparator = Objects.requireNonNull(comparator);
+            this.naturalOrdering = false;
+            this.nonNullComparator = null;
+            return this;
+        }
+
+        /**
+         * Keeps null elements as a counter at the head of the list in front of the storage of the non-null elements,
+         * which compares them by their natural ordering without any null check. The ordering equals the default one.
+         * See {@link #segregatedNulls(Comparator, boolean)}.
+         *
+         * @return this builder
+         */
+        public Builder<E> segregatedNulls() {
+            segregatedNulls(Comparator.naturalOrder(), true);
+            this.naturalOrdering = true;
+            return this;
+        }
+
+        /**
+         * Sets the comparator to the specified comparator of non-null elements, placing null values at the beginning or at the end,
+         * and keeps null elements as a counter there instead of storing them.
+         * The storage of the non-null elements calls the specified comparator directly, so its searches do not pay the null check
+         * of {@link Comparator#nullsFirst(Comparator)} or {@link Comparator#nullsLast(Comparator)},
+         * and looking up, counting or removing null elements takes O(1). The cached or abbreviated keys are computed only for non-null elements.
+         *
+         * @param nonNullComparator the comparator of non-null elements
+         * @param nullsFirst {@code true} to place null values at the beginning, {@code false} to place them at the end
+         * @return this builder
+         */
+        public Builder<E> segregatedNulls(Comparator<E> nonNullComparator, boolean nullsFirst) {
+            this.comparator = nullsFirst ? Comparator.nullsFirst(nonNullComparator) : Comparator.nullsLast(nonNullComparator);
+            this.naturalOrdering = false;
+            this.nonNullComparator = nonNullComparator;
+            this.nullsFirst = nullsFirst;
+            return this;
+        }
+
+        /**
+         * Sets the storage engine to keep the elements in.
+         *
+         * @param engine the storage engine
+         * @return this builder
+         */
+        public Builder<E> engine(StorageEngine engine) {
+            this.engine = Objects.requireNonNull(engine);
+            this.storageFactory = null;
+            return this;
+        }
+
+        /**
+         * Caches a sort key beside every element (Schwartzian transform). The key is computed once, when the element is inserted,
+         * and the searches of the storage engine compare the cached keys instead of calling the comparator,
+         * which pays off for expensive comparators such as case-insensitive or locale-aware ones.
+         * The ordering of the keys must agree with the comparator, e.g.,
+         * {@code comparator(Utils.createCaseInsensitiveNaturalOrderNullLastStringComparator()).cachedKeys(Utils.createCaseInsensitiveSortKeyExtractor())}.
+         * The function is not called for null elements, which are compared by the comparator.
+         * The keys are kept in the storage engine (see {@link #engine(StorageEngine)}), so this cannot be combined with the specialized storages
+         * (off-heap, compressed, run-length or front-coded ones).
+         *
+         * @param sortKey the function computing the sort key of a non-null element
+         * @return this builder
+         * @param <K> the type of sort keys
+         */
+        public <K extends Comparable<? super K>> Builder<E> cachedKeys(Function<? super E, ? extends K> sortKey) {
+            this.sortKey = Objects.requireNonNull(sortKey);
+            return this;
+        }
+
+        /**
+         * Keeps an abbreviated key beside every element: a {@code long} prefix of the element (e.g., its first characters packed into
+         * a number) in a primitive array, so the searches compare primitive keys and call the comparator only when the keys are equal.
+         * The abbreviation must agree with the comparator ({@code compare(a, b) <= 0} implies {@code abbreviation(a) <= abbreviation(b)}
+         * as signed numbers, so elements equal according to the comparator have equal abbreviations) and must accept null if null elements are added, e.g.,
+         * {@code comparator(Utils.createCaseInsensitiveNaturalOrderNullLastStringComparator()).abbreviatedKeys(Utils.createCaseInsensitiveAbbreviatedKeyExtractor())}.
+         * The numbers of comparisons and of comparator calls are reported by {@link io.github.vaclavrechtberger.util.SortedLinkedList#getStorageStatistics()}.
+         * This replaces the storage engine by {@link io.github.vaclavrechtberger.util.StorageEngine#CHUNKED_ARRAY}.
+         *
+         * @param abbreviation the function computing the abbreviated key of an element
+         * @return this builder
+         */
+        public Builder<E> abbreviatedKeys(ToLongFunction<? super E> abbreviation) {
+            Objects.requireNonNull(abbreviation);
+            this.storageFactory = comparator -> new ChunkedArrayStorage<>(comparator, ChunkedArrayStorage.DEFAULT_CHUNK_CAPACITY, abbreviation);
+            return this;
+        }
+
+        /**
+         * Keeps the elements off the Java heap as fixed-width keys in a direct buffer, so the garbage collector does not trace them.
+         * The elements are encoded on insertion and decoded on every access, so the list returns equal, but not identical, instances.
+         * Searches run as binary searches over the keys; if the codec is order-preserving and the default comparator is kept,
+         * the raw keys are compared without decoding. Null elements are not supported.
+         * This replaces the storage engine.
+         *
+         * @param codec the codec of the elements
+         * @return this builder
+         */
+        public Builder<E> offHeap(KeyCodec<E> codec) {
+            Objects.requireNonNull(codec);
+            this.storageFactory = comparator -> new OffHeapStorage<>(comparator, codec, naturalOrdering);
+            return this;
+        }
+
+        /**
+         * Collapses elements equal according to the comparator into one group with counts (multiset), so memory and the cost of adding
+         * or removing a duplicate scale with the number of distinct keys rather than with the number of elements.
+         * Instances equal according to the comparator but not according to {@link Object#equals(Object)} keep their order within the group.
+         * This replaces the storage engine.
+         *
+         * @return this builder
+         */
+        public Builder<E> runLength() {
+            this.storageFactory = RunLengthStorage::new;
+            return this;
+        }
+
+        /**
+         * Keeps the elements compressed as varint-encoded differences of their {@code long} representations, in blocks with a skip index
+         * (e.g., {@code deltaCompressed(Long::longValue, Long::valueOf)}). Dense sorted values, such as identifiers, take one or two bytes each.
+         * Lookups decode a single block and sequential reads decode every block once. The list returns elements created by {@code fromLong},
+         * so the conversions must be inverse to each other. Null elements are not supported.
+         * This replaces the storage engine.
+         *
+         * @param toLong the function converting an element to its {@code long} representation
+         * @param fromLong the function converting a {@code long} representation back to the element
+         * @return this builder
+         */
+        public Builder<E> deltaCompressed(ToLongFunction<? super E> toLong, LongFunction<? extends E> fromLong) {
+            Objects.requireNonNull(toLong);
+            Objects.requireNonNull(fromLong);
+            this.storageFactory = comparator -> new DeltaCompressedStorage<>(comparator, toLong, fromLong);
+            return this;
+        }
+
+        /**
+         * Enables distinct (set) mode. {@link io.github.vaclavrechtberger.util.SortedLinkedList#add(Comparable)} rejects an element equal
+         * to one already in the list according to the comparator within the search which positions it, so deduplicated insertion
+         * takes a single O(log n) operation, and the positional methods ({@code add(int, E)}, {@code addAll(int, Collection)}, {@code set})
+         * require the elements to be strictly ordered. With buffered ingestion, every rejection check merges the buffer first.
+         *
+         * @return this builder
+         */
+        public Builder<E> distinct() {
+            this.distinct = true;
+            return this;
+        }
+
+        /**
+         * Bounds the list to the specified number of elements (top-K). Once the list is full, adding an element evicts the largest element
+         * (or the smallest one, see {@link #evictSmallest()}), so the list keeps the K smallest (or largest) elements seen.
+         * An element which would be evicted right away is rejected by a single comparison with the boundary element
+         * and {@link io.github.vaclavrechtberger.util.SortedLinkedList#add(Comparable)} returns {@code false}.
+         *
+         * @param capacity the maximal number of elements
+         * @return this builder
+         * @throws IllegalArgumentException if the capacity is not positive
+         */
+        public Builder<E> bounded(int capacity) {
+            if (capacity < 1) {
+                throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+            }
+            this.capacity = capacity;
+            return this;
+        }
+
+        /**
+         * Makes a bounded list evict its smallest elements instead of the largest ones, so it keeps the largest elements seen.
+         *
+         * @return this builder
+         */
+        public Builder<E> evictSmallest() {
+            this.evictLargest = false;
+            return this;
+        }
+
+        /**
+         * Sets the listener which receives every element leaving a bounded list because of its capacity,
+         * both the evicted elements and the rejected ones.
+         *
+         * @param listener the eviction listener
+         * @return this builder
+         */
+        public Builder<E> evictionListener(Consumer<? super E> listener) {
+            this.evictionListener = Objects.requireNonNull(listener);
+            return this;
+        }
+
+        /**
+         * Makes the elements expire the specified time after their insertion. Expired elements are removed incrementally in O(log n) each,
+         * at the start of the whole-list operations and by {@link io.github.vaclavrechtberger.util.SortedLinkedList#expire()}
+         * (e.g., {@code expireAfter(60_000, System::currentTimeMillis)}).
+         *
+         * @param timeToLive the time to live, in the units of the clock
+         * @param clock the clock giving the current time
+         * @return this builder
+         * @throws IllegalArgumentException if the time to live is negative
+         */
+        public Builder<E> expireAfter(long timeToLive, LongSupplier clock) {
+            if (timeToLive < 0) {
+                throw new IllegalArgumentException("Time to live must not be negative: " + timeToLive);
+            }
+            Objects.requireNonNull(clock);
+            return expireAt(element -> clock.getAsLong() + timeToLive, clock);
+        }
+
+        /**
+         * Makes every element expire at the time given by the specified function, evaluated when the element is inserted
+         * (e.g., the timestamp of an event plus the length of a window).
+         * See {@link #expireAfter(long, LongSupplier)}.
+         *
+         * @param expiryTime the function returning the time at which the element expires, in the units of the clock
+         * @param clock the clock giving the current time
+         * @return this builder
+         */
+        public Builder<E> expireAt(ToLongFunction<? super E> expiryTime, LongSupplier clock) {
+            this.expiry = Objects.requireNonNull(expiryTime);
+            this.clock = Objects.requireNonNull(clock);
+            return this;
+        }
+
+        /**
+         * Enables buffered ingestion. Elements added by {@link io.github.vaclavrechtberger.util.SortedLinkedList#add(Comparable)}
+         * are collected in an unsorted buffer of the specified capacity, which is sorted and merged into the storage in one pass
+         * once it is full or once the list is read (e.g., by {@code get}, {@code iterator}, {@code contains}, {@code indexOf} or {@code toString}).
+         * The list always looks exactly sorted to its readers; only the cost of ordering is deferred and batched.
+         *
+         * @param capacity the capacity of the buffer
+         * @return this builder
+         * @throws IllegalArgumentException if the capacity is not positive
+         */
+        public Builder<E> buffered(int capacity) {
+            if (capacity < 1) {
+                throw new IllegalArgumentException("Buffer capacity must be positive: " + capacity);
+            }
+            this.bufferCapacity = capacity;
+            return this;
+        }
+
+        /**
+         * Builds an empty sorted list.
+         *
+         * @return a new sorted list
+         * @throws IllegalStateException if cached keys are combined with a specialized storage
+         */
+        public SortedLinkedList<E> build() {
+            Comparator<E> storageComparator = nonNullComparator != null ? nonNullComparator : comparator;
+            SortedStorage<E> storage;
+            if (sortKey != null) {
+                if (storageFactory != null) {
+                    throw new IllegalStateException("Cached keys can only be combined with a storage engine.");
+                }
+                storage = new KeyCachingStorage<>(storageComparator, sortKey, engine);
+            } else {
+                storage = storageFactory != null ? storageFactory.apply(storageComparator) : engine.create(storageComparator);
+            }
+            if (bufferCapacity > 0) {
+                storage = new BufferedStorage<>(storage, bufferCapacity);
+            }
+            if (nonNullComparator != null) {
+                storage = new NullSegregatingStorage<>(storage, nullsFirst);
+            }
+            ExpiringStorage<E> expiring = null;
+            if (expiry != null) {
+                storage = expiring = new ExpiringStorage<>(storage, expiry, clock);
+            }
+            SortedLinkedList<E> list = new SortedLinkedList<>(storage);
+            list.expiring = expiring;
+            list.distinct = distinct;
+            list.capacity = capacity;
+            list.evictLargest = evictLargest;
+            list.evictionListener = evictionListener;
+            return list;
+        }
+    }
+
+    /**
+     * List iterator which walks the storage directly and checks the ordering on {@link ListIterator#set(Object)} and {@link ListIterator#add(Object)}.
+     */
+    private class Itr implements ListIterator<E> {
+        private ListIterator<E> cursor;
+
+        private int lastReturned = -1;
+
+        private Itr(int index) {
+            this.cursor = storage.listIterator(index);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return cursor.hasNext();
+        }
+
+        @Override
+        public E next() {
+            E element = cursor.next();
+            lastReturned = cursor.previousIndex();
+            return element;
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return cursor.hasPrevious();
+        }
+
+        @Override
+        public E previous() {
+            E element = cursor.previous();
+            lastReturned = cursor.nextIndex();
+            return element;
+        }
+
+        @Override
+        public int nextIndex() {
+            return cursor.nextIndex();
+        }
+
+        @Override
+        public int previousIndex() {
+            return cursor.previousIndex();
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned < 0) {
+                throw new IllegalStateException();
+            }
+            cursor.remove();
+            lastReturned = -1;
+        }
+
+        @Override
+        public void set(E e) {
+            if (lastReturned < 0) {
+                throw new IllegalStateException();
+            }
+            if (!checkForSet(lastReturned, e)) {
+                throw new IllegalArgumentException(WRONG_REPLACEMENT_MESSAGE);
+            }
+            cursor.set(e);
+        }
+
+        @Override
+        public void add(E e) {
+            if (!checkForInsert(cursor.nextIndex(), e)) {
+                throw new IllegalArgumentException(WRONG_POSITION_MESSAGE_TEMPLATE.formatted("element", "specified"));
+            }
+            cursor.add(e);
+            lastReturned = -1;
+            if (storage.size() > capacity) {
+                int nextIndex = cursor.nextIndex() - evictOverflow();
+                cursor = storage.listIterator(Math.min(nextIndex, storage.size()));
+            }
+        }
+    }
+
+    /**
+     * View of a range of this list given by indexes. All the modifications are delegated to the (checked) methods of this list.
+     * The view fails fast with a {@link ConcurrentModificationException} once the size of this list changes other than through it.
+     */
+    private class SubList extends AbstractList<E> {
+        private int offset;
+
+        private int size;
+
+        private int expectedParentSize;
+
+        private SubList(int fromIndex, int toIndex) {
+            this.offset = fromIndex;
+            this.size = toIndex - fromIndex;
+            this.expectedParentSize = storage.size();
+        }
+
+        @Override
+        public E get(int index) {
+            checkForComodification();
+            Objects.checkIndex(index, size);
+            return SortedLinkedList.this.get(offset + index);
+        }
+
+        @Override
+        public E set(int index, E element) {
+            checkForComodification();
+            Objects.checkIndex(index, size);
+            return SortedLinkedList.this.set(offset + index, element);
+        }
+
+        @Override
+        public void add(int index, E element) {
+            checkForComodification();
+            Objects.checkIndex(index, size + 1);
+            SortedLinkedList.this.add(offset + index, element);
+            size++;
+            // a bounded list may have evicted an element from its end or from its front
+            int evicted = expectedParentSize + 1 - storage.size();
+            if (evictLargest) {
+                size = Math.min(size, storage.size() - offset);
+            } else {
+                int evictedBefore = Math.min(evicted, offset);
+                offset -= evictedBefore;
+                size -= evicted - evictedBefore;
+            }
+            modified();
+        }
+
+        @Override
+        public E remove(int index) {
+            checkForComodification();
+            Objects.checkIndex(index, size);
+            E removed = SortedLinkedList.this.remove(offset + index);
+            size--;
+            modified();
+            return removed;
+        }
+
+        @Override
+        protected void removeRange(int fromIndex, int toIndex) {
+            checkForComodification();
+            SortedLinkedList.this.removeRange(offset + fromIndex, offset + toIndex);
+            size -= toIndex - fromIndex;
+            modified();
+        }
+
+        @Override
+        public int size() {
+            checkForComodification();
+            return size;
+        }
+
+        private void modified() {
+            expectedParentSize = storage.size();
+            modCount++;
+        }
+
+        private void checkForComodification() {
+            if (storage.size() != expectedParentSize) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    /**
+     * View of a range of this list given by keys. Its bounds are located on every access, so it tracks the changes of this list;
+     * all the modifications are delegated to the (checked) methods of this list.
+     */
+    private class RangeList extends AbstractList<E> {
+        private final boolean hasFrom;
+
+        private final E fromElement;
+
+        private final boolean fromInclusive;
+
+        private final boolean hasTo;
+
+        private final E toElement;
+
+        private final boolean toInclusive;
+
+        private RangeList(boolean hasFrom, E fromElement, boolean fromInclusive, boolean hasTo, E toElement, boolean toInclusive) {
+            this.hasFrom = hasFrom;
+            this.fromElement = fromElement;
+            this.fromInclusive = fromInclusive;
+            this.hasTo = hasTo;
+            this.toElement = toElement;
+            this.toInclusive = toInclusive;
+        }
+
+        @Override
+        public E get(int index) {
+            int from = fromIndex();
+            Objects.checkIndex(index, toIndex(from) - from);
+            return storage.get(from + index);
+        }
+
+        @Override
+        public E set(int index, E element) {
+            checkInRange(element);
+            int from = fromIndex();
+            Objects.checkIndex(index, toIndex(from) - from);
+            return SortedLinkedList.this.set(from + index, element);
+        }
+
+        @Override
+        public boolean add(E element) {
+            checkInRange(element);
+            return SortedLinkedList.this.add(element);
+        }
+
+        @Override
+        public void add(int index, E element) {
+            checkInRange(element);
+            int from = fromIndex();
+            Objects.checkIndex(index, toIndex(from) - from + 1);
+            SortedLinkedList.this.add(from + index, element);
+        }
+
+        @Override
+        public E remove(int index) {
+            int from = fromIndex();
+            Objects.checkIndex(index, toIndex(from) - from);
+            return SortedLinkedList.this.remove(from + index);
+        }
+
+        @Override
+        protected void removeRange(int fromIndex, int toIndex) {
+            int from = fromIndex();
+            SortedLinkedList.this.removeRange(from + fromIndex, from + toIndex);
+        }
+
+        @Override
+        public int size() {
+            expireIfDue();
+            int from = fromIndex();
+            return toIndex(from) - from;
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            expireIfDue();
+            return listIterator(0);
+        }
+
+        @Override
+        public ListIterator<E> listIterator(int index) {
+            int from = fromIndex();
+            int to = toIndex(from);
+            if (index < 0 || index > to - from) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + (to - from));
+            }
+            ListIterator<E> cursor = new Itr(from + index);
+            return new ListIterator<>() {
+                private int end = to;
+
+                @Override
+                public boolean hasNext() {
+                    return cursor.nextIndex() < end;
+                }
+
+                @Override
+                public E next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return cursor.next();
+                }
+
+                @Override
+                public boolean hasPrevious() {
+                    return cursor.previousIndex() >= from;
+                }
+
+                @Override
+                public E previous() {
+                    if (!hasPrevious()) {
+                        throw new NoSuchElementException();
+                    }
+                    return cursor.previous();
+                }
+
+                @Override
+                public int nextIndex() {
+                    return cursor.nextIndex() - from;
+                }
+
+                @Override
+                public int previousIndex() {
+                    return cursor.previousIndex() - from;
+                }
+
+                @Override
+                public void remove() {
+                    cursor.remove();
+                    end--;
+                }
+
+                @Override
+                public void set(E e) {
+                    checkInRange(e);
+                    cursor.set(e);
+                }
+
+                @Override
+                public void add(E e) {
+                    checkInRange(e);
+                    cursor.add(e);
+                    end++;
+                }
+            };
+        }
+
+        private int fromIndex() {
+            return hasFrom ? startOf(fromElement, fromInclusive) : 0;
+        }
+
+        /**
+         * Returns the end of the range, which is not less than its specified start.
+         */
+        private int toIndex(int from) {
+            if (!hasTo) {
+                return storage.size();
+            }
+            return Math.max(from, endOf(toElement, toInclusive));
+        }
+
+        private void checkInRange(E element) {
+            if (hasFrom) {
+                int comparison = comparator.compare(element, fromElement);
+                if (comparison < 0 || comparison == 0 && !fromInclusive) {
+                    throw new IllegalArgumentException("Element out of range: " + element);
+                }
+            }
+            if (hasTo) {
+                int comparison = comparator.compare(element, toElement);
+                if (comparison > 0 || comparison == 0 && !toInclusive) {
+                    throw new IllegalArgumentException("Element out of range: " + element);
+                }
+            }
+        }
+    }
+
+    /**
+     * Read-only view of this list in reverse order.
+     */
+    private class ReversedList extends AbstractList<E> {
+        @Override
+        public E get(int index) {
+            return storage.get(size() - 1 - index);
+        }
+
+        @Override
+        public int size() {
+            return storage.size();
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            ListIterator<E> cursor = storage.listIterator(storage.size());
+            return new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return cursor.hasPrevious();
+                }
+
+                @Override
+                public E next() {
+                    return cursor.previous();
+                }
+            };
+        }
     }
 }
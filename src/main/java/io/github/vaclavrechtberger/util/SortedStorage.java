@@ -0,0 +1,191 @@
+package io.github.vaclavrechtberger.util;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.ListIterator;
+
+/**
+ * Storage backing {@link io.github.vaclavrechtberger.util.SortedLinkedList} (service provider interface).
+ * Implementations keep their elements in the order given by {@link #comparator()} and provide both positional and key-based operations.
+ * Positional mutators ({@link #add(int, Object)}, {@link #set(int, Object)} and the mutators of {@link #listIterator(int)})
+ * do not check the ordering; it is the responsibility of the caller not to break it.
+ * Built-in implementations are available through {@link io.github.vaclavrechtberger.util.StorageEngine},
+ * custom ones can be passed to {@link io.github.vaclavrechtberger.util.SortedLinkedList#SortedLinkedList(SortedStorage)}.
+ *
+ * @param <E> the type of elements held in this storage
+ */
+public interface SortedStorage<E> extends Iterable<E> {
+
+    /**
+     * Returns the comparator which determines the order of elements in this storage.
+     *
+     * @return the comparator of this storage
+     */
+    Comparator<? super E> comparator();
+
+    /**
+     * Returns the number of elements in this storage.
+     *
+     * @return the number of elements in this storage
+     */
+    int size();
+
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Returns the element at the specified position.
+     *
+     * @param index the index of the element to return
+     * @return the element at the specified position
+     * @throws IndexOutOfBoundsException if the index is out of range ({@code index < 0 || index >= size()})
+     */
+    E get(int index);
+
+    /**
+     * Returns the first (smallest) element. Implementations should make this O(1) where possible.
+     *
+     * @return the first element
+     * @throws IndexOutOfBoundsException if this storage is empty
+     */
+    default E first() {
+        return get(0);
+    }
+
+    /**
+     * Returns the last (largest) element. Implementations should make this O(1) where possible.
+     *
+     * @return the last element
+     * @throws IndexOutOfBoundsException if this storage is empty
+     */
+    default E last() {
+        return get(size() - 1);
+    }
+
+    /**
+     * Replaces the element at the specified position without checking the ordering.
+     *
+     * @param index the index of the element to replace
+     * @param element the new element
+     * @return the element previously at the specified position
+     */
+    E set(int index, E element);
+
+    /**
+     * Inserts the specified element at the specified position without checking the ordering.
+     *
+     * @param index the index at which the specified element is to be inserted ({@code 0 <= index <= size()})
+     * @param element the element to be inserted
+     */
+    void add(int index, E element);
+
+    /**
+     * Inserts the specified elements at the specified position without checking the ordering.
+     *
+     * @param index the index at which the first element is to be inserted ({@code 0 <= index <= size()})
+     * @param elements the sorted elements to be inserted
+     */
+    default void addAll(int index, Collection<? extends E> elements) {
+        for (E element : elements) {
+            add(index++, element);
+        }
+    }
+
+    /**
+     * Inserts the specified element after the last element which is less than or equal to it.
+     *
+     * @param element the element to be inserted
+     * @return the index at which the element has been inserted, or -1 if the storage defers the insertion and the index is not known yet
+     */
+    default int insert(E element) {
+        int index = upperBound(element);
+        add(index, element);
+        return index;
+    }
+
+    /**
+     * Removes the element at the specified position.
+     *
+     * @param index the index of the element to be removed
+     * @return the removed element
+     * @throws IndexOutOfBoundsException if the index is out of range ({@code index < 0 || index >= size()})
+     */
+    E remove(int index);
+
+    /**
+     * Removes the elements at the positions from {@code fromIndex}, inclusive, to {@code toIndex}, exclusive.
+     * Implementations should remove the whole block in one operation rather than element by element where possible.
+     *
+     * @param fromIndex the index of the first element to be removed
+     * @param toIndex the index after the last element to be removed
+     * @throws IndexOutOfBoundsException if {@code fromIndex < 0 || toIndex > size() || fromIndex > toIndex}
+     */
+    default void removeRange(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > size() || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("fromIndex: " + fromIndex + ", toIndex: " + toIndex + ", Size: " + size());
+        }
+        for (int i = toIndex - 1; i >= fromIndex; i--) {
+            remove(i);
+        }
+    }
+
+    /**
+     * Returns the index of the first element which is not less than the specified key (i.e., the number of elements less than the key).
+     *
+     * @param key the key to search for
+     * @return the index of the first element greater than or equal to the key, or {@code size()} if there is no such element
+     */
+    int lowerBound(E key);
+
+    /**
+     * Returns the index of the first element which is greater than the specified key (i.e., the number of elements less than or equal to the key).
+     *
+     * @param key the key to search for
+     * @return the index of the first element greater than the key, or {@code size()} if there is no such element
+     */
+    int upperBound(E key);
+
+    /**
+     * Removes all the elements from this storage.
+     */
+    void clear();
+
+    /**
+     * Returns a list iterator starting at the specified position.
+     * The returned iterator supports all the optional operations, none of them checks the ordering.
+     *
+     * @param index the index of the first element to be returned by {@link ListIterator#next()}
+     * @return the list iterator
+     */
+    ListIterator<E> listIterator(int index);
+
+    @Override
+    default Iterator<E> iterator() {
+        return listIterator(0);
+    }
+
+    /**
+     * Returns a snapshot of the statistics of this storage.
+     *
+     * @return the statistics of this storage
+     */
+    default StorageStatistics statistics() {
+        return new StorageStatistics(null);
+    }
+
+    /**
+     * Returns an array containing all the elements of this storage in their order.
+     *
+     * @return an array containing all the elements of this storage
+     */
+    default Object[] toArray() {
+        Object[] result = new Object[size()];
+        int i = 0;
+        for (E element : this) {
+            result[i++] = element;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,66 @@
+package io.github.vaclavrechtberger.util;
+
+import java.util.Comparator;
+
+/**
+ * Built-in storage engines which can back {@link io.github.vaclavrechtberger.util.SortedLinkedList}.
+ * Each engine suits a different workload; all of them keep the {@link java.util.List} contract of the sorted list.
+ */
+public enum StorageEngine {
+    /**
+     * Indexable skip list. Expected O(log n) for all the operations; suits random inserts and removals. This is the default engine.
+     */
+    SKIP_LIST {
+        @Override
+        public <E> SortedStorage<E> create(Comparator<? super E> comparator) {
+            return new SkipListStorage<>(comparator);
+        }
+    },
+    /**
+     * Order-statistic AVL tree. Worst-case O(log n) for all the operations with the shallowest search paths; suits read-mostly lookups by value or by index.
+     */
+    TREE {
+        @Override
+        public <E> SortedStorage<E> create(Comparator<? super E> comparator) {
+            return new TreeStorage<>(comparator);
+        }
+    },
+    /**
+     * Chunked (unrolled) sorted arrays. Compact and cache-friendly with array-speed scans; suits append-heavy ingestion and full scans.
+     */
+    CHUNKED_ARRAY {
+        @Override
+        public <E> SortedStorage<E> create(Comparator<? super E> comparator) {
+            return new ChunkedArrayStorage<>(comparator);
+        }
+    },
+    /**
+     * Single sorted array. O(1) access by index and binary search by value with the smallest memory footprint,
+     * but insertions and removals shift the array; suits small or read-mostly lists.
+     */
+    ARRAY {
+        @Override
+        public <E> SortedStorage<E> create(Comparator<? super E> comparator) {
+            return new ArrayStorage<>(comparator);
+        }
+    },
+    /**
+     * Starts as {@link #ARRAY} and migrates to {@link #CHUNKED_ARRAY} or {@link #TREE} (and back) as the size and the ratio of writes to reads change.
+     * The current representation and the number of migrations are reported by {@link io.github.vaclavrechtberger.util.SortedLinkedList#getStorageStatistics()}.
+     */
+    ADAPTIVE {
+        @Override
+        public <E> SortedStorage<E> create(Comparator<? super E> comparator) {
+            return new AdaptiveStorage<>(comparator);
+        }
+    };
+
+    /**
+     * Creates an empty storage of this engine.
+     *
+     * @param comparator the comparator to determine the ordering of elements
+     * @return a new empty storage
+     * @param <E> the type of elements held in the storage
+     */
+    public abstract <E> SortedStorage<E> create(Comparator<? super E> comparator);
+}
@@ -0,0 +1,101 @@
+package io.github.vaclavrechtberger.util;
+
+/**
+ * Snapshot of the statistics of a {@link io.github.vaclavrechtberger.util.SortedStorage}.
+ * Storages which do not collect some of the values report zero for them.
+ */
+public final class StorageStatistics {
+    private final StorageEngine representation;
+
+    private final long migrationCount;
+
+    private final long writeCount;
+
+    private final long readCount;
+
+    private final long comparisonCount;
+
+    private final long fullComparisonCount;
+
+    StorageStatistics(StorageEngine representation) {
+        this(representation, 0, 0, 0);
+    }
+
+    StorageStatistics(StorageEngine representation, long migrationCount, long writeCount, long readCount) {
+        this(representation, migrationCount, writeCount, readCount, 0, 0);
+    }
+
+    StorageStatistics(StorageEngine representation, long migrationCount, long writeCount, long readCount,
+                      long comparisonCount, long fullComparisonCount) {
+        this.representation = representation;
+        this.migrationCount = migrationCount;
+        this.writeCount = writeCount;
+        this.readCount = readCount;
+        this.comparisonCount = comparisonCount;
+        this.fullComparisonCount = fullComparisonCount;
+    }
+
+    /**
+     * Returns the engine which currently holds the elements, or {@code null} for a custom storage.
+     *
+     * @return the current representation
+     */
+    public StorageEngine getRepresentation() {
+        return representation;
+    }
+
+    /**
+     * Returns how many times the elements have been migrated to another representation (see {@link io.github.vaclavrechtberger.util.StorageEngine#ADAPTIVE}).
+     *
+     * @return the number of migrations
+     */
+    public long getMigrationCount() {
+        return migrationCount;
+    }
+
+    /**
+     * Returns the number of insertions and removals measured in the current workload window.
+     *
+     * @return the number of writes
+     */
+    public long getWriteCount() {
+        return writeCount;
+    }
+
+    /**
+     * Returns the number of lookups by value or by position measured in the current workload window.
+     *
+     * @return the number of reads
+     */
+    public long getReadCount() {
+        return readCount;
+    }
+
+    /**
+     * Returns the number of comparisons of elements made by searches, including those decided by abbreviated keys
+     * (see {@link io.github.vaclavrechtberger.util.SortedLinkedList.Builder#abbreviatedKeys(java.util.function.ToLongFunction)}).
+     * Only storages keeping abbreviated keys count the comparisons; the others report zero.
+     *
+     * @return the number of comparisons
+     */
+    public long getComparisonCount() {
+        return comparisonCount;
+    }
+
+    /**
+     * Returns the number of comparisons made by searches which have been delegated to the comparator.
+     * Only storages keeping abbreviated keys count the comparisons; the others report zero.
+     *
+     * @return the number of comparator calls
+     */
+    public long getFullComparisonCount() {
+        return fullComparisonCount;
+    }
+
+    @Override
+    public String toString() {
+        return "StorageStatistics{representation=" + representation + ", migrationCount=" + migrationCount
+                + ", writeCount=" + writeCount + ", readCount=" + readCount
+                + ", comparisonCount=" + comparisonCount + ", fullComparisonCount=" + fullComparisonCount + '}';
+    }
+}
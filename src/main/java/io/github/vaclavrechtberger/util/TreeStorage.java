@@ -0,0 +1,596 @@
+package io.github.vaclavrechtberger.util;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Order-statistic AVL tree.
+ * Every node keeps the size of its subtree, so both rank lookups (by position) and key lookups run in O(log n).
+ * Nodes keep a link to their parent, so iteration walks the tree in amortized O(1) per element.
+ * The node found by the last positional lookup is remembered (finger), so a lookup close to the previous one
+ * (e.g., sequential calls of {@link #get(int)} or {@link #listIterator(int)}) walks to the neighbouring nodes instead of descending from the root.
+ *
+ * @param <E> the type of elements held in this storage
+ */
+final class TreeStorage<E> implements SortedStorage<E> {
+    /**
+     * Maximal distance from the finger which is walked instead of descending from the root.
+     */
+    private static final int FINGER_DISTANCE = 8;
+
+    private final Comparator<? super E> comparator;
+
+    private Node<E> root;
+
+    private int modCount;
+
+    /**
+     * Node found by the last positional lookup and its index, valid while {@link #modCount} equals {@link #fingerModCount}.
+     */
+    private Node<E> fingerNode;
+
+    private int fingerIndex;
+
+    private int fingerModCount = -1;
+
+    /**
+     * Index of the element inserted by the last call of {@link #insert(Object)}.
+     */
+    private int insertedIndex;
+
+    TreeStorage(Comparator<? super E> comparator) {
+        this.comparator = comparator;
+    }
+
+    @Override
+    public Comparator<? super E> comparator() {
+        return comparator;
+    }
+
+    @Override
+    public int size() {
+        return size(root);
+    }
+
+    @Override
+    public E get(int index) {
+        return node(index).element;
+    }
+
+    @Override
+    public E first() {
+        if (root == null) {
+            throw new IndexOutOfBoundsException("Index: 0, Size: 0");
+        }
+        Node<E> x = root;
+        while (x.left != null) {
+            x = x.left;
+        }
+        return x.element;
+    }
+
+    @Override
+    public E last() {
+        if (root == null) {
+            throw new IndexOutOfBoundsException("Index: -1, Size: 0");
+        }
+        Node<E> x = root;
+        while (x.right != null) {
+            x = x.right;
+        }
+        return x.element;
+    }
+
+    @Override
+    public E set(int index, E element) {
+        Node<E> node = node(index);
+        E previous = node.element;
+        node.element = element;
+        return previous;
+    }
+
+    @Override
+    public void add(int index, E element) {
+        if (index < 0 || index > size()) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        root = insertAt(root, index, element);
+        root.parent = null;
+        modCount++;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void addAll(int index, Collection<? extends E> elements) {
+        if (root != null) {
+            SortedStorage.super.addAll(index, elements);
+            return;
+        }
+        Object[] sorted = elements.toArray();
+        root = build(sorted, 0, sorted.length);
+        if (root != null) {
+            root.parent = null;
+        }
+        modCount++;
+    }
+
+    @Override
+    public int insert(E element) {
+        insertedIndex = 0;
+        root = insertByKey(root, element);
+        root.parent = null;
+        modCount++;
+        return insertedIndex;
+    }
+
+    @Override
+    public E remove(int index) {
+        Node<E> node = node(index);
+        root = removeAt(root, index);
+        if (root != null) {
+            root.parent = null;
+        }
+        modCount++;
+        return node.element;
+    }
+
+    /**
+     * Splits the tree at both ends of the block and joins the remaining parts, so the removal takes O(log n) regardless of the length of the block.
+     */
+    @Override
+    public void removeRange(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > size() || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("fromIndex: " + fromIndex + ", toIndex: " + toIndex + ", Size: " + size());
+        }
+        if (fromIndex == toIndex) {
+            return;
+        }
+        Node<E>[] head = split(root, fromIndex);
+        Node<E>[] tail = split(head[1], toIndex - fromIndex);
+        root = join(head[0], tail[1]);
+        if (root != null) {
+            root.parent = null;
+        }
+        modCount++;
+    }
+
+    @Override
+    public int lowerBound(E key) {
+        int index = 0;
+        Node<E> x = root;
+        while (x != null) {
+            if (comparator.compare(x.element, key) < 0) {
+                index += size(x.left) + 1;
+                x = x.right;
+            } else {
+                x = x.left;
+            }
+        }
+        return index;
+    }
+
+    @Override
+    public int upperBound(E key) {
+        int index = 0;
+        Node<E> x = root;
+        while (x != null) {
+            if (comparator.compare(x.element, key) <= 0) {
+                index += size(x.left) + 1;
+                x = x.right;
+            } else {
+                x = x.left;
+            }
+        }
+        return index;
+    }
+
+    @Override
+    public void clear() {
+        root = null;
+        fingerNode = null;
+        modCount++;
+    }
+
+    @Override
+    public StorageStatistics statistics() {
+        return new StorageStatistics(StorageEngine.TREE);
+    }
+
+    @Override
+    public ListIterator<E> listIterator(int index) {
+        if (index < 0 || index > size()) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return new Cursor(index);
+    }
+
+    private Node<E> node(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        Node<E> x;
+        if (fingerModCount == modCount && Math.abs(index - fingerIndex) <= FINGER_DISTANCE) {
+            x = fingerNode;
+            for (int i = fingerIndex; i < index; i++) {
+                x = successor(x);
+            }
+            for (int i = fingerIndex; i > index; i--) {
+                x = predecessor(x);
+            }
+        } else {
+            x = search(index);
+        }
+        fingerNode = x;
+        fingerIndex = index;
+        fingerModCount = modCount;
+        return x;
+    }
+
+    /**
+     * Descends from the root to the node at the specified position.
+     */
+    private Node<E> search(int index) {
+        Node<E> x = root;
+        while (true) {
+            int leftSize = size(x.left);
+            if (index < leftSize) {
+                x = x.left;
+            } else if (index == leftSize) {
+                return x;
+            } else {
+                index -= leftSize + 1;
+                x = x.right;
+            }
+        }
+    }
+
+    /**
+     * Builds a perfectly balanced subtree of the elements in the specified range of the sorted array.
+     */
+    @SuppressWarnings("unchecked")
+    private Node<E> build(Object[] sorted, int from, int to) {
+        if (from >= to) {
+            return null;
+        }
+        int middle = (from + to) >>> 1;
+        Node<E> x = new Node<>((E) sorted[middle]);
+        setLeft(x, build(sorted, from, middle));
+        setRight(x, build(sorted, middle + 1, to));
+        update(x);
+        return x;
+    }
+
+    private Node<E> insertAt(Node<E> x, int index, E element) {
+        if (x == null) {
+            return new Node<>(element);
+        }
+        int leftSize = size(x.left);
+        if (index <= leftSize) {
+            setLeft(x, insertAt(x.left, index, element));
+        } else {
+            setRight(x, insertAt(x.right, index - leftSize - 1, element));
+        }
+        return balance(x);
+    }
+
+    /**
+     * Inserts the element after all the elements less than or equal to it and accumulates its index in {@link #insertedIndex}.
+     */
+    private Node<E> insertByKey(Node<E> x, E element) {
+        if (x == null) {
+            return new Node<>(element);
+        }
+        if (comparator.compare(element, x.element) < 0) {
+            setLeft(x, insertByKey(x.left, element));
+        } else {
+            insertedIndex += size(x.left) + 1;
+            setRight(x, insertByKey(x.right, element));
+        }
+        return balance(x);
+    }
+
+    /**
+     * Removes the node at the specified index of the subtree.
+     * A node with two children is replaced by its successor node (not by its element), so the remaining nodes keep their elements.
+     */
+    private Node<E> removeAt(Node<E> x, int index) {
+        int leftSize = size(x.left);
+        if (index < leftSize) {
+            setLeft(x, removeAt(x.left, index));
+        } else if (index > leftSize) {
+            setRight(x, removeAt(x.right, index - leftSize - 1));
+        } else {
+            if (x.left == null) {
+                return x.right;
+            }
+            if (x.right == null) {
+                return x.left;
+            }
+            Node<E> successor = x.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            setRight(successor, removeMin(x.right));
+            setLeft(successor, x.left);
+            x = successor;
+        }
+        return balance(x);
+    }
+
+    private Node<E> removeMin(Node<E> x) {
+        if (x.left == null) {
+            return x.right;
+        }
+        setLeft(x, removeMin(x.left));
+        return balance(x);
+    }
+
+    /**
+     * Splits the subtree into the balanced subtrees of its first {@code index} elements and of the remaining ones.
+     */
+    private Node<E>[] split(Node<E> x, int index) {
+        if (x == null) {
+            return Node.newArray(2);
+        }
+        int leftSize = size(x.left);
+        Node<E> right = x.right;
+        if (index <= leftSize) {
+            Node<E>[] parts = split(x.left, index);
+            parts[1] = join(parts[1], x, right);
+            return parts;
+        }
+        Node<E> left = x.left;
+        Node<E>[] parts = split(right, index - leftSize - 1);
+        parts[0] = join(left, x, parts[0]);
+        return parts;
+    }
+
+    /**
+     * Joins two subtrees, all the elements of the first one preceding those of the second one.
+     */
+    private Node<E> join(Node<E> left, Node<E> right) {
+        if (right == null) {
+            return left;
+        }
+        Node<E> middle = right;
+        while (middle.left != null) {
+            middle = middle.left;
+        }
+        return join(left, middle, removeMin(right));
+    }
+
+    /**
+     * Joins two subtrees with the node between them, descending along the spine of the higher subtree to the height of the lower one.
+     */
+    private Node<E> join(Node<E> left, Node<E> middle, Node<E> right) {
+        if (height(left) > height(right) + 1) {
+            setRight(left, join(left.right, middle, right));
+            return balance(left);
+        }
+        if (height(right) > height(left) + 1) {
+            setLeft(right, join(left, middle, right.left));
+            return balance(right);
+        }
+        middle.left = null;
+        middle.right = null;
+        setLeft(middle, left);
+        setRight(middle, right);
+        update(middle);
+        return middle;
+    }
+
+    private Node<E> balance(Node<E> x) {
+        update(x);
+        int balance = height(x.left) - height(x.right);
+        if (balance > 1) {
+            if (height(x.left.left) < height(x.left.right)) {
+                setLeft(x, rotateLeft(x.left));
+            }
+            return rotateRight(x);
+        }
+        if (balance < -1) {
+            if (height(x.right.right) < height(x.right.left)) {
+                setRight(x, rotateRight(x.right));
+            }
+            return rotateLeft(x);
+        }
+        return x;
+    }
+
+    private Node<E> rotateRight(Node<E> y) {
+        Node<E> x = y.left;
+        setLeft(y, x.right);
+        setRight(x, y);
+        update(y);
+        update(x);
+        return x;
+    }
+
+    private Node<E> rotateLeft(Node<E> y) {
+        Node<E> x = y.right;
+        setRight(y, x.left);
+        setLeft(x, y);
+        update(y);
+        update(x);
+        return x;
+    }
+
+    private static <E> void setLeft(Node<E> parent, Node<E> child) {
+        parent.left = child;
+        if (child != null) {
+            child.parent = parent;
+        }
+    }
+
+    private static <E> void setRight(Node<E> parent, Node<E> child) {
+        parent.right = child;
+        if (child != null) {
+            child.parent = parent;
+        }
+    }
+
+    private static <E> void update(Node<E> x) {
+        x.height = Math.max(height(x.left), height(x.right)) + 1;
+        x.size = size(x.left) + size(x.right) + 1;
+    }
+
+    private static int height(Node<?> x) {
+        return x == null ? 0 : x.height;
+    }
+
+    private static int size(Node<?> x) {
+        return x == null ? 0 : x.size;
+    }
+
+    private static <E> Node<E> successor(Node<E> x) {
+        if (x.right != null) {
+            x = x.right;
+            while (x.left != null) {
+                x = x.left;
+            }
+            return x;
+        }
+        while (x.parent != null && x.parent.right == x) {
+            x = x.parent;
+        }
+        return x.parent;
+    }
+
+    private static <E> Node<E> predecessor(Node<E> x) {
+        if (x.left != null) {
+            x = x.left;
+            while (x.right != null) {
+                x = x.right;
+            }
+            return x;
+        }
+        while (x.parent != null && x.parent.left == x) {
+            x = x.parent;
+        }
+        return x.parent;
+    }
+
+    private static final class Node<E> {
+        private E element;
+
+        private Node<E> left;
+
+        private Node<E> right;
+
+        private Node<E> parent;
+
+        private int height = 1;
+
+        private int size = 1;
+
+        private Node(E element) {
+            this.element = element;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <E> Node<E>[] newArray(int length) {
+            return (Node<E>[]) new Node<?>[length];
+        }
+    }
+
+    private final class Cursor implements ListIterator<E> {
+        private Node<E> next;
+
+        private int nextIndex;
+
+        private Node<E> lastReturned;
+
+        private int expectedModCount = modCount;
+
+        private Cursor(int index) {
+            this.next = index == size() ? null : node(index);
+            this.nextIndex = index;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextIndex < size();
+        }
+
+        @Override
+        public E next() {
+            checkForComodification();
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = next;
+            next = successor(next);
+            nextIndex++;
+            return lastReturned.element;
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return nextIndex > 0;
+        }
+
+        @Override
+        public E previous() {
+            checkForComodification();
+            if (!hasPrevious()) {
+                throw new NoSuchElementException();
+            }
+            next = next == null ? node(nextIndex - 1) : predecessor(next);
+            lastReturned = next;
+            nextIndex--;
+            return lastReturned.element;
+        }
+
+        @Override
+        public int nextIndex() {
+            return nextIndex;
+        }
+
+        @Override
+        public int previousIndex() {
+            return nextIndex - 1;
+        }
+
+        @Override
+        public void remove() {
+            checkForComodification();
+            if (lastReturned == null) {
+                throw new IllegalStateException();
+            }
+            if (lastReturned == next) {
+                next = successor(next);
+                TreeStorage.this.remove(nextIndex);
+            } else {
+                TreeStorage.this.remove(--nextIndex);
+            }
+            lastReturned = null;
+            expectedModCount = modCount;
+        }
+
+        @Override
+        public void set(E e) {
+            checkForComodification();
+            if (lastReturned == null) {
+                throw new IllegalStateException();
+            }
+            lastReturned.element = e;
+        }
+
+        @Override
+        public void add(E e) {
+            checkForComodification();
+            TreeStorage.this.add(nextIndex++, e);
+            lastReturned = null;
+            expectedModCount = modCount;
+        }
+
+        private void checkForComodification() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package io.github.vaclavrechtberger.util;
 
+import java.text.CollationKey;
+import java.text.Collator;
 import java.util.Comparator;
 import java.util.function.Function;
+import java.util.function.ToLongFunction;
 
 public class Utils {
     public static final <E extends Comparable<E>> Comparator<E> createNaturalOrderNullFirstComparator() {
@@ -15,4 +18,91 @@ public class Utils {
     public static final Comparator<String> createCaseInsensitiveNaturalOrderNullLastStringComparator() {
         return Comparator.nullsLast(Comparator.comparing(Function.identity(), String.CASE_INSENSITIVE_ORDER));
     }
+
+    /**
+     * Creates a comparator of strings ordered by the specified collator (e.g., {@code Collator.getInstance(Locale.GERMAN)}), placing null values at the end.
+     *
+     * @param collator the collator
+     * @return the comparator
+     */
+    public static final Comparator<String> createCollatorNullLastStringComparator(Collator collator) {
+        return Comparator.nullsLast(collator::compare);
+    }
+
+    /**
+     * Creates a sort key extractor for {@link #createCaseInsensitiveNaturalOrderNullLastStringComparator()}
+     * (see {@link io.github.vaclavrechtberger.util.SortedLinkedList.Builder#cachedKeys(Function)}).
+     * The key is the string with every code point case-folded the same way as by {@link String#CASE_INSENSITIVE_ORDER},
+     * which orders the folded code points, so the keys are compared by a plain {@link String#compareTo(String)}.
+     * As that compares UTF-16 code units, code points from {@code U+D800} up (surrogate pairs, unpaired surrogates and the characters
+     * after the surrogate range) are written as two units above every single-unit code point, ordered by the code point.
+     *
+     * @return the sort key extractor
+     */
+    public static final Function<String, String> createCaseInsensitiveSortKeyExtractor() {
+        return string -> {
+            StringBuilder folded = new StringBuilder(string.length());
+            string.codePoints().forEach(codePoint -> {
+                int foldedCodePoint = Character.toLowerCase(Character.toUpperCase(codePoint));
+                if (foldedCodePoint < Character.MIN_SURROGATE) {
+                    folded.append((char) foldedCodePoint);
+                } else {
+                    int offset = foldedCodePoint - Character.MIN_SURROGATE;
+                    folded.append((char) (Character.MIN_SURROGATE + (offset >>> Character.SIZE))).append((char) offset);
+                }
+            });
+            return folded.toString();
+        };
+    }
+
+    /**
+     * Creates a sort key extractor for {@link #createCollatorNullLastStringComparator(Collator)} with the same collator
+     * (see {@link io.github.vaclavrechtberger.util.SortedLinkedList.Builder#cachedKeys(Function)}).
+     * The key is the {@link CollationKey} of the string, whose comparison is a plain bitwise comparison.
+     *
+     * @param collator the collator
+     * @return the sort key extractor
+     */
+    public static final Function<String, CollationKey> createCollationKeyExtractor(Collator collator) {
+        return collator::getCollationKey;
+    }
+
+    /**
+     * Creates an abbreviated key extractor for {@link #createCaseInsensitiveNaturalOrderNullLastStringComparator()}
+     * (see {@link io.github.vaclavrechtberger.util.SortedLinkedList.Builder#abbreviatedKeys(ToLongFunction)}).
+     * The key packs the first four case-folded characters of the string (padded by zeros), characters from the surrogate range up
+     * collapse to one value which ends the key. Null is abbreviated to {@link Long#MAX_VALUE}.
+     *
+     * @return the abbreviated key extractor
+     */
+    public static final ToLongFunction<String> createCaseInsensitiveAbbreviatedKeyExtractor() {
+        return string -> {
+            if (string == null) {
+                return Long.MAX_VALUE;
+            }
+            long key = 0;
+            int length = Math.min(string.length(), 4);
+            for (int i = 0; i < length; i++) {
+                char folded = Character.toLowerCase(Character.toUpperCase(string.charAt(i)));
+                if (folded >= Character.MIN_SURROGATE) {
+                    key |= (long) Character.MIN_SURROGATE << (3 - i) * Character.SIZE;
+                    break;
+                }
+                key |= (long) folded << (3 - i) * Character.SIZE;
+            }
+            return key ^ Long.MIN_VALUE;
+        };
+    }
+
+    /**
+     * Creates an abbreviated key extractor for {@link #createNaturalOrderNullFirstComparator()} of integral numbers
+     * ({@link Long}, {@link Integer}, {@link Short} or {@link Byte}; see {@link io.github.vaclavrechtberger.util.SortedLinkedList.Builder#abbreviatedKeys(ToLongFunction)}).
+     * The key is the value itself, null is abbreviated to {@link Long#MIN_VALUE}.
+     *
+     * @return the abbreviated key extractor
+     * @param <E> the type of numbers
+     */
+    public static final <E extends Number> ToLongFunction<E> createIntegralAbbreviatedKeyExtractor() {
+        return number -> number == null ? Long.MIN_VALUE : number.longValue();
+    }
 }
@@ -0,0 +1,70 @@
+package io.github.vaclavrechtberger.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SortedIntListTest {
+
+    @Test
+    public void addAndSearchTest() {
+        SortedIntList list = new SortedIntList();
+        Arrays.stream(new int[] {5, -1, 3, 5, 0, 9}).forEach(list::add);
+        assertThat(list.stream().boxed().toList(), contains(-1, 0, 3, 5, 5, 9));
+        assertTrue(list.contains(3));
+        assertFalse(list.contains(4));
+        assertThat(list.indexOf(5), is(3));
+        assertThat(list.lastIndexOf(5), is(4));
+        assertThat(list.getInt(5), is(9));
+        assertTrue(list.removeValue(5));
+        assertThat(list.boxed(), contains(-1, 0, 3, 5, 9));
+    }
+
+    @Test
+    public void nullsAreCountedTest() {
+        SortedIntList list = new SortedIntList(NullPlacement.FIRST);
+        List<Integer> boxed = list.boxed();
+        boxed.add(2);
+        boxed.add(null);
+        boxed.add(1);
+        assertThat(boxed, contains(null, 1, 2));
+        assertThat(list.nullCount(), is(1));
+        assertThat(list.indexOf(2), is(2));
+        assertThat(boxed.indexOf(null), is(0));
+        assertTrue(list.isNull(0));
+        assertThrows(NullPointerException.class, () -> list.getInt(0));
+        assertThat(boxed.remove(0), is((Integer) null));
+        assertThat(boxed, contains(1, 2));
+    }
+
+    @Test
+    public void nullsNotPermittedTest() {
+        SortedIntList list = new SortedIntList();
+        assertThrows(NullPointerException.class, () -> list.boxed().add(null));
+    }
+
+    @Test
+    public void doubleOrderingTest() {
+        SortedDoubleList list = new SortedDoubleList(NullPlacement.LAST);
+        Arrays.stream(new double[] {Double.NaN, 0.0, -0.0, -1.5}).forEach(list::add);
+        list.addNull();
+        assertThat(list.boxed(), contains(-1.5, -0.0, 0.0, Double.NaN, null));
+        assertTrue(list.contains(Double.NaN));
+        assertThat(list.indexOf(0.0), is(2));
+    }
+
+    @Test
+    public void longStreamTest() {
+        SortedLongList list = new SortedLongList();
+        list.add(3L);
+        list.add(1L);
+        assertThat(list.stream().sum(), is(4L));
+        assertThat(list.iterator().nextLong(), is(1L));
+    }
+}
@@ -1,13 +1,28 @@
 package io.github.vaclavrechtberger.util;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.EnumSource;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.io.IOException;
+import java.text.Collator;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.ListIterator;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Random;
+import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Stream;
 
 import static org.hamcrest.Matchers.contains;
@@ -131,4 +146,694 @@ public class SortedLinkedListTest {
         assertThat(new SortedLinkedList<>(List.of("b", "a")).stream().toList(),
                 contains(List.of("a", "b").toArray()));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void searchUsesComparatorAndEqualsTest() {
+        SortedLinkedList<String> sortedLinkedList = new SortedLinkedList<>(List.of("a", "b", "B", "b", "c"), Utils.createCaseInsensitiveNaturalOrderNullLastStringComparator());
+        assertThat(sortedLinkedList.indexOf("B"), is(2));
+        assertThat(sortedLinkedList.indexOf("C"), is(-1));
+        assertThat(sortedLinkedList.lastIndexOf("b"), is(3));
+        assertTrue(sortedLinkedList.contains("c"));
+        assertFalse(sortedLinkedList.contains(1));
+        assertTrue(sortedLinkedList.remove("b"));
+        assertThat(sortedLinkedList, contains("a", "B", "b", "c"));
+    }
+
+    @ParameterizedTest
+    @MethodSource("storageSource")
+    public void randomOperationsMatchReferenceTest(SortedStorage<Integer> storage) {
+        Random random = new Random(42);
+        SortedLinkedList<Integer> sortedLinkedList = new SortedLinkedList<>(storage);
+        List<Integer> reference = new ArrayList<>();
+        random.ints(200, 0, 500).sorted().forEach(reference::add);
+        sortedLinkedList.addAll(0, reference);
+        for (int i = 0; i < 5_000; i++) {
+            Integer value = random.nextInt(500);
+            if (random.nextInt(3) == 0 && !reference.isEmpty()) {
+                int index = random.nextInt(reference.size());
+                assertThat(sortedLinkedList.remove(index), is(reference.remove(index)));
+            } else {
+                sortedLinkedList.add(value);
+                int index = 0;
+                while (index < reference.size() && reference.get(index) <= value) {
+                    index++;
+                }
+                reference.add(index, value);
+            }
+            assertThat(sortedLinkedList.indexOf(value), is(reference.indexOf(value)));
+            assertThat(sortedLinkedList.lastIndexOf(value), is(reference.lastIndexOf(value)));
+        }
+        assertThat(sortedLinkedList, contains(reference.toArray()));
+        for (int i = 0; i < reference.size(); i++) {
+            assertThat(sortedLinkedList.get(i), is(reference.get(i)));
+        }
+        for (int i = reference.size() - 1; i >= 0; i -= 3) {
+            assertThat(sortedLinkedList.get(i), is(reference.get(i)));
+            assertThat(sortedLinkedList.listIterator(i).next(), is(reference.get(i)));
+        }
+        assertThat(sortedLinkedList.reversed().getFirst(), is(reference.getLast()));
+        sortedLinkedList.removeIf(value -> value % 3 == 0);
+        reference.removeIf(value -> value % 3 == 0);
+        assertThat(sortedLinkedList, contains(reference.toArray()));
+    }
+
+    public static Stream<Arguments> storageSource() {
+        Comparator<Integer> comparator = Utils.createNaturalOrderNullFirstComparator();
+        return Stream.concat(
+                Arrays.stream(StorageEngine.values()).map(engine -> Arguments.of(engine.create(comparator))),
+                Stream.of(
+                        Arguments.of(new ChunkedArrayStorage<>(comparator, 8)),
+                        Arguments.of(new AdaptiveStorage<>(comparator, 16)),
+                        Arguments.of(new BufferedStorage<>(new ArrayStorage<>(comparator), 64)),
+                        Arguments.of(new OffHeapStorage<>(comparator, KeyCodec.integers(), true)),
+                        Arguments.of(new OffHeapStorage<>(comparator, KeyCodec.integers(), false)),
+                        Arguments.of(new DeltaCompressedStorage<>(comparator, Integer::longValue, value -> (int) value, 8)),
+                        Arguments.of(new RunLengthStorage<>(comparator)),
+                        Arguments.of(new ChunkedArrayStorage<>(comparator, 8, Utils.<Integer>createIntegralAbbreviatedKeyExtractor())),
+                        Arguments.of(new NullSegregatingStorage<>(new ArrayStorage<Integer>(Comparator.naturalOrder()), true))
+                )
+        );
+    }
+
+    @Test
+    public void adaptiveStorageMigratesTest() {
+        SortedLinkedList<Integer> sortedLinkedList = new SortedLinkedList<>(new AdaptiveStorage<>(Utils.<Integer>createNaturalOrderNullFirstComparator(), 16));
+        assertThat(sortedLinkedList.getStorageStatistics().getRepresentation(), is(StorageEngine.ARRAY));
+        for (int i = 0; i < 1_000; i++) {
+            sortedLinkedList.add(i % 100);
+        }
+        assertThat(sortedLinkedList.getStorageStatistics().getRepresentation(), is(StorageEngine.CHUNKED_ARRAY));
+        assertThat(sortedLinkedList.getStorageStatistics().getMigrationCount(), is(1L));
+        while (sortedLinkedList.size() > 2) {
+            sortedLinkedList.remove(sortedLinkedList.size() - 1);
+        }
+        for (int i = 0; i < 300; i++) {
+            sortedLinkedList.get(i % 2);
+        }
+        sortedLinkedList.add(0);
+        assertThat(sortedLinkedList.getStorageStatistics().getRepresentation(), is(StorageEngine.ARRAY));
+        assertThat(sortedLinkedList, contains(0, 0, 0));
+    }
+
+    @Test
+    public void adaptiveStorageIterationAcrossMigrationTest() {
+        SortedLinkedList<Integer> sortedLinkedList = new SortedLinkedList<>(StorageEngine.ADAPTIVE);
+        for (int i = 0; i < 5_000; i++) {
+            sortedLinkedList.add(i);
+        }
+        long migrations = sortedLinkedList.getStorageStatistics().getMigrationCount();
+        int iterated = 0;
+        for (Integer value : sortedLinkedList) {
+            assertThat(sortedLinkedList.get(value), is(value));
+            assertThat(sortedLinkedList.indexOf(value), is(value));
+            assertThat(sortedLinkedList.lastIndexOf(value), is(value));
+            iterated++;
+        }
+        assertThat(iterated, is(5_000));
+        assertThat(sortedLinkedList.getStorageStatistics().getMigrationCount(), is(migrations));
+
+        SortedLinkedList<Integer> small = new SortedLinkedList<>(new AdaptiveStorage<>(Utils.<Integer>createNaturalOrderNullFirstComparator(), 8));
+        for (int i = 0; i < 8; i++) {
+            small.add(i * 10);
+        }
+        ListIterator<Integer> iterator = small.listIterator();
+        while (iterator.hasNext()) {
+            Integer value = iterator.next();
+            iterator.add(value + 1);
+        }
+        assertThat(small.size(), is(16));
+        Iterator<Integer> stale = small.iterator();
+        stale.next();
+        for (int i = 0; i < 1_000 && small.getStorageStatistics().getMigrationCount() == 0; i++) {
+            small.add(i);
+        }
+        assertThat(small.getStorageStatistics().getMigrationCount(), is(1L));
+        assertThrows(ConcurrentModificationException.class, stale::next);
+    }
+
+    @ParameterizedTest
+    @EnumSource(StorageEngine.class)
+    public void constructWithEngineTest(StorageEngine engine) {
+        SortedLinkedList<String> sortedLinkedList = new SortedLinkedList<>(Arrays.asList("c", "B", null, "a", "b"), Utils.createCaseInsensitiveNaturalOrderNullLastStringComparator(), engine);
+        assertThat(sortedLinkedList, contains("a", "B", "b", "c", null));
+        assertThat(sortedLinkedList.indexOf(null), is(4));
+    }
+
+    @ParameterizedTest
+    @EnumSource(StorageEngine.class)
+    public void appendAndPrependFastPathTest(StorageEngine engine) {
+        SortedLinkedList<Integer> sortedLinkedList = new SortedLinkedList<>(engine);
+        sortedLinkedList.add(5);
+        sortedLinkedList.add(7);
+        sortedLinkedList.add(7);
+        sortedLinkedList.add(null);
+        sortedLinkedList.add(6);
+        assertThat(sortedLinkedList, contains(null, 5, 6, 7, 7));
+        assertThat(sortedLinkedList.getAppendCount(), is(3L));
+        assertThat(sortedLinkedList.getPrependCount(), is(1L));
+    }
+
+    @Test
+    public void bufferedIngestionTest() {
+        SortedLinkedList<String> sortedLinkedList = SortedLinkedList.<String>builder()
+                .comparator(Utils.createCaseInsensitiveNaturalOrderNullLastStringComparator())
+                .engine(StorageEngine.CHUNKED_ARRAY)
+                .buffered(4)
+                .build();
+        sortedLinkedList.add("b");
+        sortedLinkedList.add("a");
+        sortedLinkedList.add("B");
+        assertThat(sortedLinkedList.size(), is(3));
+        assertThat(sortedLinkedList.toString(), is("[a, b, B]"));
+        sortedLinkedList.add("c");
+        sortedLinkedList.add("A");
+        sortedLinkedList.add(null);
+        sortedLinkedList.add("b");
+        assertThat(sortedLinkedList.indexOf("B"), is(3));
+        assertThat(sortedLinkedList, contains("a", "A", "b", "B", "b", "c", null));
+    }
+
+    @Test
+    public void subListClearTest() {
+        SortedLinkedList<Integer> sortedLinkedList = new SortedLinkedList<>(List.of(1, 2, 3, 4, 5));
+        sortedLinkedList.subList(1, 4).clear();
+        assertThat(sortedLinkedList, contains(1, 5));
+    }
+
+    @Test
+    public void subListComodificationTest() {
+        SortedLinkedList<Integer> sortedLinkedList = new SortedLinkedList<>(List.of(1, 2, 3, 4, 5));
+        List<Integer> subList = sortedLinkedList.subList(1, 4);
+        subList.add(1, 2);
+        assertThat(subList, contains(2, 2, 3, 4));
+        sortedLinkedList.add(0);
+        assertThrows(ConcurrentModificationException.class, () -> subList.get(0));
+        assertThrows(ConcurrentModificationException.class, subList::size);
+
+        SortedLinkedList<Integer> evictingLargest = SortedLinkedList.<Integer>builder().bounded(4).build();
+        evictingLargest.addAll(List.of(1, 3, 5, 7));
+        List<Integer> tail = evictingLargest.subList(2, 4);
+        tail.add(0, 4);
+        assertThat(tail, contains(4, 5));
+        SortedLinkedList<Integer> evictingSmallest = SortedLinkedList.<Integer>builder().bounded(4).evictSmallest().build();
+        evictingSmallest.addAll(List.of(1, 3, 5, 7));
+        List<Integer> middle = evictingSmallest.subList(1, 3);
+        middle.add(1, 4);
+        assertThat(middle, contains(3, 4, 5));
+        assertThat(evictingSmallest, contains(3, 4, 5, 7));
+    }
+
+    @Test
+    public void offHeapStorageTest() {
+        SortedLinkedList<UUID> sortedLinkedList = SortedLinkedList.<UUID>builder()
+                .offHeap(KeyCodec.uuids())
+                .build();
+        List<UUID> reference = new ArrayList<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 1_000; i++) {
+            UUID uuid = new UUID(random.nextLong(), random.nextLong());
+            sortedLinkedList.add(uuid);
+            reference.add(uuid);
+        }
+        reference.sort(null);
+        assertThat(new ArrayList<>(sortedLinkedList), is(reference));
+        assertThat(sortedLinkedList.indexOf(reference.get(500)), is(500));
+        assertTrue(sortedLinkedList.remove(reference.get(10)));
+        assertFalse(sortedLinkedList.contains(reference.get(10)));
+
+        SortedLinkedList<Long> longs = SortedLinkedList.<Long>builder()
+                .comparator(Comparator.reverseOrder())
+                .offHeap(KeyCodec.longs())
+                .build();
+        longs.addAll(List.of(3L, -5L, Long.MAX_VALUE, Long.MIN_VALUE, 0L));
+        assertThat(longs, contains(Long.MAX_VALUE, 3L, 0L, -5L, Long.MIN_VALUE));
+        assertThat(longs.indexOf(-5L), is(3));
+    }
+
+    @Test
+    public void mappedFileStorageTest(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("list.bin");
+        Random random = new Random(11);
+        List<Long> reference = new ArrayList<>();
+        try (MappedFileStorage<Long> storage = MappedFileStorage.open(file, Comparator.naturalOrder(), KeyCodec.longs(), 5)) {
+            SortedLinkedList<Long> sortedLinkedList = new SortedLinkedList<>(storage);
+            for (int i = 0; i < 2_000; i++) {
+                int operation = random.nextInt(5);
+                if (operation == 0 && !reference.isEmpty()) {
+                    int index = random.nextInt(reference.size());
+                    assertThat(sortedLinkedList.remove(index), is(reference.remove(index)));
+                } else if (operation == 1 && !reference.isEmpty()) {
+                    int index = random.nextInt(reference.size());
+                    assertThat(sortedLinkedList.set(index, sortedLinkedList.get(index)), is(reference.get(index)));
+                } else if (operation == 2 && !reference.isEmpty()) {
+                    int from = random.nextInt(reference.size());
+                    int to = Math.min(reference.size(), from + random.nextInt(4));
+                    sortedLinkedList.removeRange(from, to);
+                    reference.subList(from, to).clear();
+                } else {
+                    long value = random.nextInt(1_000);
+                    sortedLinkedList.add(value);
+                    reference.add(value);
+                    reference.sort(null);
+                }
+                if (!reference.isEmpty()) {
+                    int index = random.nextInt(reference.size());
+                    assertThat(sortedLinkedList.get(index), is(reference.get(index)));
+                    assertThat(sortedLinkedList.indexOf(reference.get(index)), is(reference.indexOf(reference.get(index))));
+                }
+            }
+            assertThat(new ArrayList<>(sortedLinkedList), is(reference));
+            assertTrue(storage.getGeneration() > 1);
+        }
+        try (MappedFileStorage<Long> storage = MappedFileStorage.open(file, Comparator.naturalOrder(), KeyCodec.longs())) {
+            SortedLinkedList<Long> sortedLinkedList = new SortedLinkedList<>(storage);
+            assertThat(new ArrayList<>(sortedLinkedList), is(reference));
+            sortedLinkedList.clear();
+            sortedLinkedList.addAll(List.of(3L, 1L, 2L));
+        }
+        try (MappedFileStorage<Long> storage = MappedFileStorage.open(file, Comparator.naturalOrder(), KeyCodec.longs())) {
+            assertThat(new SortedLinkedList<>(storage), contains(1L, 2L, 3L));
+        }
+        assertThrows(IOException.class, () -> MappedFileStorage.open(file, Comparator.naturalOrder(), KeyCodec.uuids()));
+    }
+
+    @Test
+    public void deltaCompressedStorageTest() {
+        SortedLinkedList<Long> sortedLinkedList = SortedLinkedList.<Long>builder()
+                .deltaCompressed(Long::longValue, Long::valueOf)
+                .build();
+        List<Long> reference = new ArrayList<>();
+        for (long i = 0; i < 10_000; i++) {
+            reference.add(i * 3);
+        }
+        reference.addAll(List.of(Long.MIN_VALUE, Long.MAX_VALUE, -1L));
+        sortedLinkedList.addAll(reference);
+        reference.sort(null);
+        assertThat(new ArrayList<>(sortedLinkedList), is(reference));
+        assertThat(sortedLinkedList.indexOf(2_997L), is(1_001));
+        assertFalse(sortedLinkedList.contains(2_998L));
+        sortedLinkedList.add(2_998L);
+        assertThat(sortedLinkedList.get(1_002), is(2_998L));
+        assertThat(sortedLinkedList.getLast(), is(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void frontCodedStorageTest() {
+        SortedLinkedList<String> sortedLinkedList = SortedLinkedList.frontCodedBuilder()
+                .comparator(Utils.createCaseInsensitiveNaturalOrderNullLastStringComparator())
+                .build();
+        List<String> reference = new ArrayList<>();
+        Random random = new Random(5);
+        for (int i = 0; i < 2_000; i++) {
+            String path = random.nextInt(3) == 0 ? null : "https://example.com/" + (random.nextBoolean() ? "Docs/" : "docs/") + random.nextInt(500) + "/\u00e9";
+            sortedLinkedList.add(path);
+            reference.add(path);
+        }
+        reference.sort(Utils.createCaseInsensitiveNaturalOrderNullLastStringComparator());
+        for (int i = 0; i < reference.size(); i += 97) {
+            String path = reference.get(i);
+            assertThat(sortedLinkedList.get(i), is(path));
+            assertThat(sortedLinkedList.indexOf(path), is(reference.indexOf(path)));
+        }
+        assertThat(sortedLinkedList.getLast(), is((String) null));
+        for (int i = 0; i < 500; i++) {
+            int index = random.nextInt(reference.size());
+            assertThat(sortedLinkedList.remove(index), is(reference.remove(index)));
+        }
+        for (int i = 0; i < 20; i++) {
+            int from = random.nextInt(reference.size() + 1);
+            int to = Math.min(reference.size(), from + random.nextInt(60));
+            sortedLinkedList.removeRange(from, to);
+            reference.subList(from, to).clear();
+        }
+        int firstNull = reference.indexOf(null);
+        sortedLinkedList.removeRange(firstNull - 5, firstNull + 5);
+        reference.subList(firstNull - 5, firstNull + 5).clear();
+        assertThat(Arrays.asList(sortedLinkedList.toArray()), is(reference));
+
+        SortedLinkedList<String> surrogates = SortedLinkedList.frontCodedBuilder().build();
+        surrogates.addAll(List.of("abb", "abd", "\u00e9t\u00e9", "\u00e9t\ud83d\ude00"));
+        surrogates.add("abc\ud800x");
+        assertThat(surrogates, contains("abb", "abc\ud800x", "abd", "\u00e9t\u00e9", "\u00e9t\ud83d\ude00"));
+        assertTrue(surrogates.contains("abc\ud800x"));
+    }
+
+    @Test
+    public void runLengthStorageTest() {
+        SortedLinkedList<String> sortedLinkedList = SortedLinkedList.<String>builder()
+                .comparator(Utils.createCaseInsensitiveNaturalOrderNullLastStringComparator())
+                .runLength()
+                .build();
+        for (int i = 0; i < 1_000; i++) {
+            sortedLinkedList.add(i % 3 == 0 ? "B" : "b");
+            sortedLinkedList.add("a");
+        }
+        sortedLinkedList.add(null);
+        assertThat(sortedLinkedList.size(), is(2_001));
+        assertThat(sortedLinkedList.get(999), is("a"));
+        assertThat(sortedLinkedList.subList(1_000, 1_004), contains("B", "b", "b", "B"));
+        assertThat(sortedLinkedList.indexOf("b"), is(1_001));
+        assertThat(sortedLinkedList.lastIndexOf("B"), is(1_999));
+        assertThat(sortedLinkedList.remove(1_001), is("b"));
+        assertThat(sortedLinkedList.subList(1_000, 1_003), contains("B", "b", "B"));
+        assertThat(sortedLinkedList.getLast(), is((String) null));
+    }
+
+    @Test
+    public void distinctModeTest() {
+        SortedLinkedList<String> sortedLinkedList = SortedLinkedList.<String>builder()
+                .comparator(Utils.createCaseInsensitiveNaturalOrderNullLastStringComparator())
+                .distinct()
+                .build();
+        assertTrue(sortedLinkedList.add("b"));
+        assertTrue(sortedLinkedList.add("a"));
+        assertTrue(sortedLinkedList.add("d"));
+        assertTrue(sortedLinkedList.add("c"));
+        assertFalse(sortedLinkedList.add("B"));
+        assertFalse(sortedLinkedList.add("D"));
+        assertFalse(sortedLinkedList.add("a"));
+        assertTrue(sortedLinkedList.add(null));
+        assertFalse(sortedLinkedList.add(null));
+        assertFalse(sortedLinkedList.addAll(List.of("A", "C")));
+        assertThat(sortedLinkedList, contains("a", "b", "c", "d", null));
+        assertThrows(IllegalArgumentException.class, () -> sortedLinkedList.add(1, "A"));
+        assertThrows(IllegalArgumentException.class, () -> sortedLinkedList.set(1, "C"));
+        sortedLinkedList.set(1, "B");
+        assertThat(sortedLinkedList.get(1), is("B"));
+
+        SortedLinkedList<Integer> integers = SortedLinkedList.<Integer>builder().distinct().build();
+        integers.addAll(List.of(3, 1, 3, 2, 1));
+        assertThat(integers, contains(1, 2, 3));
+    }
+
+    @Test
+    public void boundedModeTest() {
+        List<Integer> evicted = new ArrayList<>();
+        SortedLinkedList<Integer> smallest = SortedLinkedList.<Integer>builder()
+                .bounded(3)
+                .evictionListener(evicted::add)
+                .build();
+        assertTrue(smallest.add(5));
+        assertTrue(smallest.add(1));
+        assertTrue(smallest.add(4));
+        assertFalse(smallest.add(7));
+        assertFalse(smallest.add(5));
+        assertTrue(smallest.add(2));
+        assertThat(smallest, contains(1, 2, 4));
+        assertThat(evicted, contains(7, 5, 5));
+
+        evicted.clear();
+        SortedLinkedList<Integer> largest = SortedLinkedList.<Integer>builder()
+                .bounded(2)
+                .evictSmallest()
+                .evictionListener(evicted::add)
+                .build();
+        largest.addAll(List.of(3, 9, 1, 6));
+        assertThat(largest, contains(6, 9));
+        assertThat(evicted, contains(1, 3));
+        assertFalse(largest.add(5));
+        assertTrue(largest.add(6));
+        assertThat(largest, contains(6, 9));
+        assertThat(evicted, contains(1, 3, 5, 6));
+        assertTrue(largest.add(8));
+        assertThat(largest, contains(8, 9));
+        ListIterator<Integer> iterator = largest.listIterator(2);
+        iterator.add(10);
+        assertFalse(iterator.hasNext());
+        assertThat(largest, contains(9, 10));
+    }
+
+    @Test
+    public void expiringElementsTest() {
+        long[] now = {0};
+        SortedLinkedList<Integer> sortedLinkedList = SortedLinkedList.<Integer>builder()
+                .expireAfter(10, () -> now[0])
+                .build();
+        sortedLinkedList.addAll(List.of(5, 3));
+        now[0] = 5;
+        sortedLinkedList.add(4);
+        Integer seven = 7;
+        sortedLinkedList.add(seven);
+        sortedLinkedList.add(seven);
+        assertTrue(sortedLinkedList.remove(seven));
+        now[0] = 10;
+        assertThat(sortedLinkedList, contains(4, 7));
+        now[0] = 14;
+        assertThat(sortedLinkedList.size(), is(2));
+        now[0] = 15;
+        assertThat(sortedLinkedList.size(), is(0));
+        assertThat(sortedLinkedList.expire(), is(0));
+
+        SortedLinkedList<Integer> window = SortedLinkedList.<Integer>builder()
+                .expireAt(timestamp -> timestamp + 100L, () -> now[0])
+                .build();
+        window.addAll(List.of(100, 20, 60));
+        now[0] = 160;
+        assertThat(window.expire(), is(2));
+        assertThat(window, contains(100));
+        window.add(300);
+        now[0] = 250;
+        ListIterator<Integer> iterator = window.listIterator(0);
+        assertThat(iterator.next(), is(300));
+        assertFalse(iterator.hasNext());
+
+        SortedLinkedList<Integer> churn = SortedLinkedList.<Integer>builder()
+                .expireAfter(1_000, () -> now[0])
+                .build();
+        for (int i = 0; i < 100; i++) {
+            churn.add(i);
+        }
+        for (int i = 100; i < 1_000; i++) {
+            churn.add(i);
+            assertTrue(churn.remove(Integer.valueOf(i)));
+        }
+        churn.add(seven);
+        churn.add(seven);
+        assertTrue(churn.remove(seven));
+        now[0] += 1_000;
+        assertThat(churn.expire(), is(101));
+        assertTrue(churn.isEmpty());
+    }
+
+    @Test
+    public void cachedKeysTest() {
+        int[] comparisons = {0};
+        Comparator<String> caseInsensitive = Utils.createCaseInsensitiveNaturalOrderNullLastStringComparator();
+        SortedLinkedList<String> sortedLinkedList = SortedLinkedList.<String>builder()
+                .comparator((a, b) -> {
+                    comparisons[0]++;
+                    return caseInsensitive.compare(a, b);
+                })
+                .cachedKeys(Utils.createCaseInsensitiveSortKeyExtractor())
+                .engine(StorageEngine.TREE)
+                .build();
+        List<String> reference = new ArrayList<>();
+        String[] affixes = {"X", "x", "\uff41", "\uff21", "\ue000", "\ud800", "\udbff", "\ud83d\ude00", "\ud801\udc00", "\ud801\udc28"};
+        Random random = new Random(3);
+        for (int i = 0; i < 1_000; i++) {
+            String value = random.nextInt(10) == 0 ? null : affixes[random.nextInt(affixes.length)] + Integer.toString(random.nextInt(1 << 10), 36)
+                    + affixes[random.nextInt(affixes.length)];
+            sortedLinkedList.add(value);
+            reference.add(value);
+        }
+        assertTrue(comparisons[0] <= 3 * 1_000);
+        reference.sort(caseInsensitive);
+        assertThat(Arrays.asList(sortedLinkedList.toArray()), is(reference));
+        assertThat(sortedLinkedList.indexOf(reference.get(500)), is(reference.indexOf(reference.get(500))));
+
+        Collator collator = Collator.getInstance(Locale.GERMAN);
+        SortedLinkedList<String> german = SortedLinkedList.<String>builder()
+                .comparator(Utils.createCollatorNullLastStringComparator(collator))
+                .cachedKeys(Utils.createCollationKeyExtractor(collator))
+                .engine(StorageEngine.TREE)
+                .build();
+        german.addAll(List.of("Zebra", "\u00c4pfel", "Apfel", "bauen"));
+        german.add(null);
+        german.add("Birne");
+        assertThat(german, contains("Apfel", "\u00c4pfel", "bauen", "Birne", "Zebra", null));
+
+        assertThrows(IllegalStateException.class, () -> SortedLinkedList.<String>builder().cachedKeys(Function.identity()).runLength().build());
+    }
+
+    @Test
+    public void abbreviatedKeysTest() {
+        SortedLinkedList<String> sortedLinkedList = SortedLinkedList.<String>builder()
+                .comparator(Utils.createCaseInsensitiveNaturalOrderNullLastStringComparator())
+                .abbreviatedKeys(Utils.createCaseInsensitiveAbbreviatedKeyExtractor())
+                .build();
+        List<String> reference = new ArrayList<>();
+        Random random = new Random(5);
+        for (int i = 0; i < 5_000; i++) {
+            String value = random.nextInt(10) == 0 ? null : Integer.toString(random.nextInt(1 << 30), 36) + (random.nextBoolean() ? "X" : "\u00e9");
+            sortedLinkedList.add(value);
+            reference.add(value);
+        }
+        sortedLinkedList.addAll(List.of("ab\ud83d\ude00", "AB\uffff", "ab", "AB\u00e9"));
+        reference.addAll(List.of("ab\ud83d\ude00", "AB\uffff", "ab", "AB\u00e9"));
+        reference.sort(Utils.createCaseInsensitiveNaturalOrderNullLastStringComparator());
+        assertThat(Arrays.asList(sortedLinkedList.toArray()), is(reference));
+        for (int i = 0; i < reference.size(); i += 97) {
+            assertThat(sortedLinkedList.indexOf(reference.get(i)), is(reference.indexOf(reference.get(i))));
+        }
+        StorageStatistics statistics = sortedLinkedList.getStorageStatistics();
+        assertThat(statistics.getRepresentation(), is(StorageEngine.CHUNKED_ARRAY));
+        assertTrue(statistics.getFullComparisonCount() * 4 < statistics.getComparisonCount());
+
+        SortedLinkedList<String> plain = SortedLinkedList.<String>builder().engine(StorageEngine.CHUNKED_ARRAY).build();
+        plain.addAll(List.of("b", "a", "c"));
+        assertTrue(plain.contains("b"));
+        assertThat(plain.getStorageStatistics().getComparisonCount(), is(0L));
+    }
+
+    @Test
+    public void segregatedNullsTest() {
+        SortedLinkedList<Integer> sortedLinkedList = SortedLinkedList.<Integer>builder()
+                .segregatedNulls((a, b) -> {
+                    assertTrue(a != null && b != null);
+                    return a.compareTo(b);
+                }, false)
+                .engine(StorageEngine.TREE)
+                .build();
+        sortedLinkedList.addAll(Arrays.asList(3, null, 1, null, 2));
+        sortedLinkedList.add(null);
+        assertThat(sortedLinkedList, contains(1, 2, 3, null, null, null));
+        assertThat(sortedLinkedList.indexOf(null), is(3));
+        assertTrue(sortedLinkedList.contains(null));
+        assertNull(sortedLinkedList.get(5));
+        assertTrue(sortedLinkedList.remove(null));
+        assertThat(sortedLinkedList.size(), is(5));
+
+        ListIterator<Integer> iterator = sortedLinkedList.listIterator(5);
+        assertNull(iterator.previous());
+        iterator.remove();
+        assertNull(iterator.previous());
+        assertThat(iterator.previous(), is(3));
+        iterator.add(2);
+        assertThat(iterator.next(), is(3));
+        assertNull(iterator.next());
+        assertThat(sortedLinkedList, contains(1, 2, 2, 3, null));
+
+        SortedLinkedList<Integer> nullsFirst = SortedLinkedList.<Integer>builder().segregatedNulls().build();
+        nullsFirst.add(5);
+        nullsFirst.add(null);
+        nullsFirst.add(4);
+        nullsFirst.add(null);
+        assertThat(nullsFirst, contains(null, null, 4, 5));
+        assertThat(nullsFirst.indexOf(4), is(2));
+        nullsFirst.removeIf(Objects::isNull);
+        assertThat(nullsFirst, contains(4, 5));
+    }
+
+    @ParameterizedTest
+    @EnumSource(StorageEngine.class)
+    public void rangeListTest(StorageEngine engine) {
+        SortedLinkedList<Integer> sortedLinkedList = new SortedLinkedList<>(engine);
+        sortedLinkedList.addAll(List.of(1, 3, 3, 5, 7, 9));
+        assertThat(sortedLinkedList.rangeList(3, true, 7, false), contains(3, 3, 5));
+        assertThat(sortedLinkedList.rangeList(3, false, 7, true), contains(5, 7));
+        assertThat(sortedLinkedList.rangeList(4, true, 4, true).size(), is(0));
+        assertThat(sortedLinkedList.headList(5, false), contains(1, 3, 3));
+        assertThat(sortedLinkedList.tailList(7, true), contains(7, 9));
+        assertThrows(IllegalArgumentException.class, () -> sortedLinkedList.rangeList(5, true, 3, true));
+
+        List<Integer> range = sortedLinkedList.rangeList(2, true, 6, true);
+        assertThat(range.size(), is(3));
+        assertThat(range.get(2), is(5));
+        range.add(4);
+        sortedLinkedList.add(6);
+        sortedLinkedList.add(0);
+        assertThat(range, contains(3, 3, 4, 5, 6));
+        assertThrows(IllegalArgumentException.class, () -> range.add(8));
+
+        ListIterator<Integer> iterator = range.listIterator(range.size());
+        assertThat(iterator.previous(), is(6));
+        iterator.remove();
+        assertThat(iterator.previous(), is(5));
+        assertThat(iterator.previousIndex(), is(2));
+        range.removeIf(value -> value == 3);
+        assertThat(range, contains(4, 5));
+        assertThat(sortedLinkedList, contains(0, 1, 4, 5, 7, 9));
+    }
+
+    @ParameterizedTest
+    @EnumSource(StorageEngine.class)
+    public void navigationTest(StorageEngine engine) {
+        SortedLinkedList<Integer> sortedLinkedList = new SortedLinkedList<>(engine);
+        sortedLinkedList.addAll(List.of(10, 20, 20, 30));
+        assertThat(sortedLinkedList.lower(20), is(10));
+        assertThat(sortedLinkedList.floor(20), is(20));
+        assertThat(sortedLinkedList.floor(25), is(20));
+        assertThat(sortedLinkedList.ceiling(20), is(20));
+        assertThat(sortedLinkedList.ceiling(21), is(30));
+        assertThat(sortedLinkedList.higher(20), is(30));
+        assertNull(sortedLinkedList.lower(10));
+        assertNull(sortedLinkedList.higher(30));
+
+        assertThat(sortedLinkedList.lowerIndex(20), is(0));
+        assertThat(sortedLinkedList.floorIndex(20), is(2));
+        assertThat(sortedLinkedList.ceilingIndex(20), is(1));
+        assertThat(sortedLinkedList.higherIndex(20), is(3));
+        assertThat(sortedLinkedList.floorIndex(5), is(-1));
+        assertThat(sortedLinkedList.ceilingIndex(31), is(-1));
+        assertThat(sortedLinkedList.higherIndex(30), is(-1));
+
+        assertThat(sortedLinkedList.rank(20), is(1));
+        assertThat(sortedLinkedList.rank(35), is(4));
+        assertThat(sortedLinkedList.countRange(10, true, 20, true), is(3));
+        assertThat(sortedLinkedList.countRange(10, false, 30, false), is(2));
+        assertThat(sortedLinkedList.countRange(20, false, 20, true), is(0));
+        assertThrows(IllegalArgumentException.class, () -> sortedLinkedList.countRange(30, true, 10, true));
+    }
+
+    @Test
+    public void equalRangeTest() {
+        SortedLinkedList<String> sortedLinkedList = new SortedLinkedList<>(Utils.createCaseInsensitiveNaturalOrderNullLastStringComparator());
+        sortedLinkedList.addAll(List.of("a", "B", "b", "B", "c"));
+        assertThat(sortedLinkedList.equalRange("b")[0], is(1));
+        assertThat(sortedLinkedList.equalRange("b")[1], is(4));
+        assertThat(sortedLinkedList.equalRange("bb")[0], is(4));
+        assertThat(sortedLinkedList.equalRange("bb")[1], is(4));
+        assertThat(sortedLinkedList.indexOf("B"), is(1));
+        assertThat(sortedLinkedList.lastIndexOf("B"), is(3));
+        assertThat(sortedLinkedList.lastIndexOf(42), is(-1));
+        assertTrue(sortedLinkedList.remove("b"));
+        assertThat(sortedLinkedList, contains("a", "B", "B", "c"));
+    }
+
+    @ParameterizedTest
+    @MethodSource("storageSource")
+    public void removeRangeTest(SortedStorage<Integer> storage) {
+        Random random = new Random(11);
+        SortedLinkedList<Integer> sortedLinkedList = new SortedLinkedList<>(storage);
+        List<Integer> reference = new ArrayList<>();
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 100; i++) {
+                Integer value = random.nextInt(1_000);
+                sortedLinkedList.add(value);
+                reference.add(value);
+            }
+            reference.sort(Comparator.naturalOrder());
+            int from = random.nextInt(reference.size() + 1);
+            int to = from + random.nextInt(reference.size() - from + 1);
+            sortedLinkedList.removeRange(from, to);
+            reference.subList(from, to).clear();
+            assertThat(sortedLinkedList, contains(reference.toArray()));
+            int low = random.nextInt(1_000);
+            int high = low + random.nextInt(200);
+            int removed = sortedLinkedList.removeRange(low, true, high, false);
+            assertThat(removed, is((int) reference.stream().filter(value -> value >= low && value < high).count()));
+            reference.removeIf(value -> value >= low && value < high);
+            assertThat(sortedLinkedList, contains(reference.toArray()));
+            assertThat(sortedLinkedList.size(), is(reference.size()));
+            if (!reference.isEmpty()) {
+                assertThat(sortedLinkedList.get(reference.size() - 1), is(reference.get(reference.size() - 1)));
+                assertThat(sortedLinkedList.indexOf(reference.get(0)), is(0));
+            }
+        }
+        sortedLinkedList.subList(1, sortedLinkedList.size() - 1).clear();
+        assertThat(sortedLinkedList, contains(reference.get(0), reference.get(reference.size() - 1)));
+        sortedLinkedList.tailList(0, true).clear();
+        assertTrue(sortedLinkedList.isEmpty());
+        assertThrows(IndexOutOfBoundsException.class, () -> sortedLinkedList.removeRange(0, 1));
+    }
+}